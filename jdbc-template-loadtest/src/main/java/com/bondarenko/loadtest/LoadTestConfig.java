@@ -0,0 +1,194 @@
+package com.bondarenko.loadtest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run. Defaults describe a short closed-loop run of 16 platform threads.
+ */
+public class LoadTestConfig {
+    /**
+     * How load is generated.
+     */
+    public enum Mode {
+        /**
+         * A fixed number of workers each issue their next call when the previous one completes, optionally paced
+         * to the target rate. Throughput adapts to the latency of the system under test.
+         */
+        CLOSED,
+        /**
+         * Calls arrive at the target rate regardless of how many are still in flight, as independent users would.
+         * Latency includes the time a call waited for a free worker.
+         */
+        OPEN
+    }
+
+    /**
+     * The kind of threads running the calls.
+     */
+    public enum ThreadKind {
+        PLATFORM,
+        /** Requires a Java runtime with virtual threads (Java 21 or later). */
+        VIRTUAL
+    }
+
+    private Mode mode = Mode.CLOSED;
+    private ThreadKind threadKind = ThreadKind.PLATFORM;
+    private int threads = 16;
+    private double targetRate;
+    private Duration warmup = Duration.ofSeconds(2);
+    private Duration duration = Duration.ofSeconds(10);
+    private Duration drainTimeout = Duration.ofMinutes(1);
+    private int tableRows = 10_000;
+    private int pageSize = 20;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+    public LoadTestConfig() {
+        mix.put(Operation.QUERY, 20);
+        mix.put(Operation.QUERY_FOR_OBJECT, 70);
+        mix.put(Operation.UPDATE, 10);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public ThreadKind getThreadKind() {
+        return threadKind;
+    }
+
+    public void setThreadKind(ThreadKind threadKind) {
+        this.threadKind = threadKind;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of workers of a closed loop, or the size of the worker pool of an open loop on platform
+     * threads. An open loop on virtual threads runs every call on its own thread.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads should be positive.");
+        }
+        this.threads = threads;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * Sets the intended number of calls per second. Required for the open loop; for the closed loop it paces the
+     * workers, and 0 lets them run back to back.
+     *
+     * @param targetRate The calls per second over all threads.
+     */
+    public void setTargetRate(double targetRate) {
+        if (targetRate < 0) {
+            throw new IllegalArgumentException("targetRate should not be negative.");
+        }
+        this.targetRate = targetRate;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+
+    /**
+     * Sets how long the open loop waits after the run for the calls still in flight. Calls that have not completed
+     * by then are abandoned and counted as errors.
+     *
+     * @param drainTimeout The time to wait for calls in flight.
+     */
+    public void setDrainTimeout(Duration drainTimeout) {
+        this.drainTimeout = drainTimeout;
+    }
+
+    public int getTableRows() {
+        return tableRows;
+    }
+
+    public void setTableRows(int tableRows) {
+        if (tableRows <= 0) {
+            throw new IllegalArgumentException("tableRows should be positive.");
+        }
+        this.tableRows = tableRows;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize should be positive.");
+        }
+        this.pageSize = pageSize;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return Collections.unmodifiableMap(mix);
+    }
+
+    /**
+     * Sets the relative weight of an operation in the mix.
+     *
+     * @param operation The operation.
+     * @param weight    Its weight; 0 removes it from the mix.
+     */
+    public void setWeight(Operation operation, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight should not be negative.");
+        }
+        mix.put(operation, weight);
+    }
+
+    void validate() {
+        if (mode == Mode.OPEN && targetRate <= 0) {
+            throw new IllegalArgumentException("The open loop requires a positive targetRate.");
+        }
+        if (duration == null || duration.isNegative() || duration.isZero() || warmup == null || warmup.isNegative()) {
+            throw new IllegalArgumentException("duration should be positive and warmup should not be negative.");
+        }
+        if (drainTimeout == null || drainTimeout.isNegative()) {
+            throw new IllegalArgumentException("drainTimeout should not be negative.");
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("At least one operation should have a positive weight.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode + ", threadKind=" + threadKind + ", threads=" + threads
+                + ", targetRate=" + (targetRate == 0 ? "unpaced" : targetRate + "/s")
+                + ", warmup=" + warmup + ", duration=" + duration + ", tableRows=" + tableRows + ", mix=" + mix;
+    }
+}
@@ -0,0 +1,82 @@
+package com.bondarenko.loadtest;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs a load test against an embedded H2 database from the command line.
+ * <p>
+ * Options have the form {@code --name=value}:
+ * <ul>
+ *     <li>{@code mode} - {@code closed} (default) or {@code open}</li>
+ *     <li>{@code thread-kind} - {@code platform} (default) or {@code virtual}, which requires Java 21</li>
+ *     <li>{@code threads} - number of workers, default 16</li>
+ *     <li>{@code rate} - target calls per second; required for the open loop, paces the closed loop</li>
+ *     <li>{@code warmup}, {@code duration} - in seconds, default 2 and 10</li>
+ *     <li>{@code drain-timeout} - seconds the open loop waits for calls in flight after the run, default 60</li>
+ *     <li>{@code mix} - weights as {@code query:20,query_for_object:70,update:10}</li>
+ *     <li>{@code rows} - rows in the test table, default 10000</li>
+ *     <li>{@code pool-size} - maximum connections of the H2 pool, default 16</li>
+ *     <li>{@code url} - H2 URL, default an in-memory database</li>
+ *     <li>{@code out} - report directory, default {@code target/load-test}</li>
+ * </ul>
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        LoadTestConfig config = new LoadTestConfig();
+        config.setMode(LoadTestConfig.Mode.valueOf(options.getOrDefault("mode", "closed").toUpperCase(Locale.ROOT)));
+        config.setThreadKind(LoadTestConfig.ThreadKind.valueOf(options.getOrDefault("thread-kind", "platform").toUpperCase(Locale.ROOT)));
+        config.setThreads(Integer.parseInt(options.getOrDefault("threads", "16")));
+        config.setTargetRate(Double.parseDouble(options.getOrDefault("rate", "0")));
+        config.setWarmup(Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "2"))));
+        config.setDuration(Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "10"))));
+        config.setDrainTimeout(Duration.ofSeconds(Long.parseLong(options.getOrDefault("drain-timeout", "60"))));
+        config.setTableRows(Integer.parseInt(options.getOrDefault("rows", "10000")));
+        if (options.containsKey("mix")) {
+            for (Operation operation : Operation.values()) {
+                config.setWeight(operation, 0);
+            }
+            for (String weight : options.get("mix").split(",")) {
+                String[] parts = weight.split(":");
+                config.setWeight(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+            }
+        }
+
+        String url = options.getOrDefault("url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        JdbcConnectionPool dataSource = JdbcConnectionPool.create(url, "sa", "sa");
+        dataSource.setMaxConnections(Integer.parseInt(options.getOrDefault("pool-size", "16")));
+        try {
+            LoadTestRunner.createTable(dataSource, config.getTableRows());
+            System.out.println("Running load test: " + config);
+            LoadTestResult result = new LoadTestRunner(dataSource, config).run();
+
+            ReportWriter reportWriter = new ReportWriter(result);
+            Path out = Path.of(options.getOrDefault("out", "target/load-test"));
+            reportWriter.writeFiles(out, "report");
+            reportWriter.writeCsv(new PrintWriter(System.out));
+            System.out.println("Reports written to " + out.toAbsolutePath());
+        } finally {
+            dataSource.dispose();
+        }
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Options should have the form --name=value: " + arg);
+            }
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
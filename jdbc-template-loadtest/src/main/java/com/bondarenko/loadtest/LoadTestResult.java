@@ -0,0 +1,129 @@
+package com.bondarenko.loadtest;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements of a load test run.
+ * <p>
+ * Response time is measured from the moment a call was intended to start, so it includes any time the call waited
+ * because the generator or the system under test was stalled; this is the latency a user would see and is free of
+ * coordinated omission. Service time is measured from the moment the call actually started.
+ * <p>
+ * A closed loop without a target rate has no schedule: every call is intended to start when the previous one ends,
+ * so its response time equals its service time and a stall hides the calls that would have been issued meanwhile.
+ * Such results are reported as not corrected for coordinated omission, see {@link #isCoordinatedOmissionCorrected()}.
+ * <p>
+ * Failed calls are counted as errors and their response times are kept apart from those of successful calls, so a
+ * failure that returns quickly does not make the latency look better and a slow one can still be seen. A call of the
+ * open loop that had not completed when the run was drained is recorded as an error with the time it waited.
+ */
+public class LoadTestResult {
+    private final LoadTestConfig config;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Stats total = new Stats();
+    private Duration elapsed = Duration.ZERO;
+
+    LoadTestResult(LoadTestConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    void record(Operation operation, long responseNanos, long serviceNanos) {
+        stats.get(operation).record(responseNanos, serviceNanos);
+        total.record(responseNanos, serviceNanos);
+    }
+
+    void recordError(Operation operation, long responseNanos) {
+        stats.get(operation).recordError(responseNanos);
+        total.recordError(responseNanos);
+    }
+
+    void setElapsed(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    public LoadTestConfig getConfig() {
+        return config;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public Stats getTotal() {
+        return total;
+    }
+
+    public Map<Operation, Stats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Returns whether response times were measured against a schedule of intended start times, which is the case for
+     * the open loop and for a closed loop paced by a target rate.
+     *
+     * @return false if the run was an unpaced closed loop, whose response times are only service times.
+     */
+    public boolean isCoordinatedOmissionCorrected() {
+        return config.getMode() == LoadTestConfig.Mode.OPEN || config.getTargetRate() > 0;
+    }
+
+    /**
+     * Returns the completed calls per second of the measured period.
+     *
+     * @param stats The statistics of one operation or the total.
+     * @return The throughput in calls per second.
+     */
+    public double getThroughput(Stats stats) {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : stats.getResponseTime().getTotalCount() * 1_000_000_000.0 / nanos;
+    }
+
+    /**
+     * Latencies and error count of one operation, or of all operations together.
+     */
+    public static class Stats {
+        private final LatencyHistogram responseTime = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final LatencyHistogram errorTime = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        private void record(long responseNanos, long serviceNanos) {
+            responseTime.record(responseNanos);
+            serviceTime.record(serviceNanos);
+        }
+
+        private void recordError(long responseNanos) {
+            errorTime.record(responseNanos);
+            errors.increment();
+        }
+
+        public LatencyHistogram getResponseTime() {
+            return responseTime;
+        }
+
+        public LatencyHistogram getServiceTime() {
+            return serviceTime;
+        }
+
+        /**
+         * Returns the response times of the failed calls, measured from their intended start like those of the
+         * successful calls.
+         *
+         * @return The error latencies.
+         */
+        public LatencyHistogram getErrorTime() {
+            return errorTime;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+}
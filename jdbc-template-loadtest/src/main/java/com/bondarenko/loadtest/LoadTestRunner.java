@@ -0,0 +1,233 @@
+package com.bondarenko.loadtest;
+
+import com.bondarenko.template.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of {@link JdbcTemplate} calls against any DataSource and measures their latencies.
+ * <p>
+ * Calls whose intended start falls into the warmup are executed but not recorded. In the closed loop, every worker
+ * runs calls back to back, or paced to its share of the target rate, with each call intended to start when the
+ * previous one ends or when its pacing slot begins. In the open loop, a dispatcher releases calls at the target rate
+ * to the worker pool, so a stall shows up as queueing in the response time instead of silently lowering the rate.
+ * After the run the open loop waits up to the drain timeout for the calls in flight; the ones still queued or
+ * running then are abandoned and recorded as errors, so a stall at the end of the run is not lost from the result.
+ */
+public class LoadTestRunner {
+    private final DataSource dataSource;
+    private final LoadTestConfig config;
+
+    /**
+     * Constructs a new LoadTestRunner.
+     *
+     * @param dataSource The DataSource under test, typically a connection pool. It must hold the load test table,
+     *                   see {@link #createTable(DataSource, int)}.
+     * @param config     The settings of the run.
+     */
+    public LoadTestRunner(DataSource dataSource, LoadTestConfig config) {
+        if (dataSource == null || config == null) {
+            throw new IllegalArgumentException("dataSource and config should not be null.");
+        }
+        config.validate();
+        this.dataSource = dataSource;
+        this.config = config;
+    }
+
+    /**
+     * Creates and fills the table the workload runs against, replacing any previous one.
+     *
+     * @param dataSource The DataSource to create the table in.
+     * @param rows       The number of rows.
+     * @throws java.sql.SQLException If the table cannot be created.
+     */
+    public static void createTable(DataSource dataSource, int rows) throws java.sql.SQLException {
+        Workload.createTable(dataSource, rows);
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @return The measurements of the run, excluding the warmup.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the run to end.
+     */
+    public LoadTestResult run() throws InterruptedException {
+        Workload workload = new Workload(new JdbcTemplate(dataSource), config);
+        LoadTestResult result = new LoadTestResult(config);
+        long start = System.nanoTime();
+        long measureStart = start + config.getWarmup().toNanos();
+        long end = measureStart + config.getDuration().toNanos();
+
+        if (config.getMode() == LoadTestConfig.Mode.CLOSED) {
+            runClosedLoop(workload, result, start, measureStart, end);
+        } else {
+            runOpenLoop(workload, result, start, measureStart, end);
+        }
+        result.setElapsed(Duration.ofNanos(Math.min(System.nanoTime(), end) - measureStart));
+        return result;
+    }
+
+    private void runClosedLoop(Workload workload, LoadTestResult result, long start, long measureStart, long end)
+            throws InterruptedException {
+        long intervalNanos = config.getTargetRate() == 0 ? 0 : (long) (config.getThreads() * 1_000_000_000.0 / config.getTargetRate());
+        ThreadFactory threadFactory = threadFactory("load-test-worker");
+        List<Thread> workers = new ArrayList<>(config.getThreads());
+        for (int i = 0; i < config.getThreads(); i++) {
+            long firstSlot = intervalNanos == 0 ? start : start + intervalNanos * i / config.getThreads();
+            Thread worker = threadFactory.newThread(() -> {
+                long intended = firstSlot;
+                while (true) {
+                    long now = waitUntil(intended);
+                    if (intervalNanos == 0) {
+                        intended = now;
+                    }
+                    if (intended >= end) {
+                        return;
+                    }
+                    new Call(workload, result, null, intended, intended >= measureStart).run();
+                    intended += intervalNanos;
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runOpenLoop(Workload workload, LoadTestResult result, long start, long measureStart, long end)
+            throws InterruptedException {
+        double intervalNanos = 1_000_000_000.0 / config.getTargetRate();
+        ExecutorService executor = config.getThreadKind() == LoadTestConfig.ThreadKind.VIRTUAL
+                ? virtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(config.getThreads(), threadFactory("load-test-worker"));
+        Set<Call> pending = ConcurrentHashMap.newKeySet();
+        try {
+            for (long number = 0; ; number++) {
+                long intended = start + (long) (number * intervalNanos);
+                if (intended >= end) {
+                    break;
+                }
+                waitUntil(intended);
+                Call call = new Call(workload, result, pending, intended, intended >= measureStart);
+                pending.add(call);
+                executor.execute(call);
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(config.getDrainTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+                long now = System.nanoTime();
+                for (Call call : pending) {
+                    call.abandon(now);
+                }
+            }
+        }
+    }
+
+    private static long waitUntil(long deadline) {
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            LockSupport.parkNanos(deadline - now);
+        }
+        return now;
+    }
+
+    /**
+     * One call of the workload. A call of the open loop is recorded either by itself when it completes or by
+     * {@link #abandon(long)}, whichever first removes it from the pending calls.
+     */
+    private static final class Call implements Runnable {
+        private final Workload workload;
+        private final LoadTestResult result;
+        private final Set<Call> pending;
+        private final Operation operation;
+        private final long intended;
+        private final boolean measured;
+
+        private Call(Workload workload, LoadTestResult result, Set<Call> pending, long intended, boolean measured) {
+            this.workload = workload;
+            this.result = result;
+            this.pending = pending;
+            this.operation = workload.nextOperation();
+            this.intended = intended;
+            this.measured = measured;
+        }
+
+        @Override
+        public void run() {
+            long started = System.nanoTime();
+            boolean failed = false;
+            try {
+                workload.execute(operation);
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            long finished = System.nanoTime();
+            if (pending != null && !pending.remove(this) || !measured) {
+                return;
+            }
+            if (failed) {
+                result.recordError(operation, finished - intended);
+            } else {
+                result.record(operation, finished - intended, finished - started);
+            }
+        }
+
+        private void abandon(long now) {
+            if (pending.remove(this) && measured) {
+                result.recordError(operation, now - intended);
+            }
+        }
+    }
+
+    private ThreadFactory threadFactory(String name) {
+        if (config.getThreadKind() == LoadTestConfig.ThreadKind.VIRTUAL) {
+            return virtualThreadFactory();
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Looks up {@code Thread.ofVirtual().factory()} reflectively, so the harness builds and runs on Java 17 and uses
+     * virtual threads whenever the runtime provides them.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        ThreadFactory factory = virtualThreadFactory();
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.bondarenko.loadtest;
+
+/**
+ * The template calls a load test can mix.
+ */
+public enum Operation {
+    /** {@code JdbcTemplate.query} reading a page of rows. */
+    QUERY,
+    /** {@code JdbcTemplate.queryForObject} reading one row by primary key. */
+    QUERY_FOR_OBJECT,
+    /** {@code JdbcTemplate.update} incrementing a counter of one row. */
+    UPDATE
+}
@@ -0,0 +1,148 @@
+package com.bondarenko.loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the latency percentiles of a load test run as CSV and HTML.
+ * <p>
+ * Every row reports one operation, or all operations together, for one of the three latency kinds: {@code response},
+ * measured from the intended start and therefore corrected for coordinated omission, {@code service}, measured
+ * from the actual start, and {@code error}, the response latency of the failed calls. A large gap between response
+ * and service latency means calls queued behind a stall. The {@code co_corrected} column tells whether the response
+ * and error latencies really are corrected; they are not for a closed loop without a target rate, where they are
+ * only service latencies.
+ */
+public class ReportWriter {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] HEADER = {"operation", "latency", "count", "errors", "ops_per_second",
+            "mean_ms", "p50_ms", "p90_ms", "p99_ms", "p999_ms", "max_ms", "co_corrected"};
+
+    private final LoadTestResult result;
+
+    public ReportWriter(LoadTestResult result) {
+        if (result == null) {
+            throw new IllegalArgumentException("result should not be null.");
+        }
+        this.result = result;
+    }
+
+    /**
+     * Writes the report as CSV with a header line.
+     *
+     * @param writer The writer to write to. It is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write(String.join(",", HEADER));
+        writer.write('\n');
+        for (String[] row : rows()) {
+            writer.write(String.join(",", row));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the report as a standalone HTML page.
+     *
+     * @param writer The writer to write to. It is not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeHtml(Writer writer) throws IOException {
+        writer.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"UTF-8\">\n<title>Load test report</title>\n");
+        writer.write("<style>body{font-family:sans-serif}table{border-collapse:collapse}"
+                + "td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}"
+                + "td:first-child,td:nth-child(2){text-align:left}</style>\n</head>\n<body>\n");
+        writer.write("<h1>Load test report</h1>\n<p>" + escape(result.getConfig().toString())
+                + "</p>\n<p>Measured for " + format(result.getElapsed().toNanos() / 1e9) + " s. "
+                + "Response latency includes the time a call waited past its intended start, "
+                + "service latency only the time the call itself took.</p>\n");
+        if (!result.isCoordinatedOmissionCorrected()) {
+            writer.write("<p><strong>Response latency is not corrected for coordinated omission:</strong> the closed "
+                    + "loop ran without a target rate, so calls had no intended start and stalls are "
+                    + "under-represented. Set a target rate or use the open loop for user-facing latency.</p>\n");
+        }
+        writer.write("<table>\n<tr>");
+        for (String column : HEADER) {
+            writer.write("<th>" + column + "</th>");
+        }
+        writer.write("</tr>\n");
+        for (String[] row : rows()) {
+            writer.write("<tr>");
+            for (String cell : row) {
+                writer.write("<td>" + escape(cell) + "</td>");
+            }
+            writer.write("</tr>\n");
+        }
+        writer.write("</table>\n</body>\n</html>\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes {@code <name>.csv} and {@code <name>.html} into the given directory, creating it if needed.
+     *
+     * @param directory The output directory.
+     * @param name      The file name without extension.
+     * @throws IOException If writing fails.
+     */
+    public void writeFiles(Path directory, String name) throws IOException {
+        Files.createDirectories(directory);
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(name + ".csv"), StandardCharsets.UTF_8)) {
+            writeCsv(writer);
+        }
+        try (Writer writer = Files.newBufferedWriter(directory.resolve(name + ".html"), StandardCharsets.UTF_8)) {
+            writeHtml(writer);
+        }
+    }
+
+    private String[][] rows() {
+        Map<Operation, LoadTestResult.Stats> stats = result.getStats();
+        String[][] rows = new String[(stats.size() + 1) * 3][];
+        int i = 0;
+        rows[i++] = row("all", "response", result.getTotal(), result.getTotal().getResponseTime());
+        rows[i++] = row("all", "service", result.getTotal(), result.getTotal().getServiceTime());
+        rows[i++] = row("all", "error", result.getTotal(), result.getTotal().getErrorTime());
+        for (Map.Entry<Operation, LoadTestResult.Stats> entry : stats.entrySet()) {
+            String operation = entry.getKey().name().toLowerCase(Locale.ROOT);
+            rows[i++] = row(operation, "response", entry.getValue(), entry.getValue().getResponseTime());
+            rows[i++] = row(operation, "service", entry.getValue(), entry.getValue().getServiceTime());
+            rows[i++] = row(operation, "error", entry.getValue(), entry.getValue().getErrorTime());
+        }
+        return rows;
+    }
+
+    private String[] row(String operation, String latency, LoadTestResult.Stats stats, LatencyHistogram histogram) {
+        String[] row = new String[HEADER.length];
+        int i = 0;
+        row[i++] = operation;
+        row[i++] = latency;
+        row[i++] = Long.toString(histogram.getTotalCount());
+        row[i++] = Long.toString(stats.getErrors());
+        row[i++] = format(result.getThroughput(stats));
+        row[i++] = millis(histogram.getMeanNanos());
+        for (double percentile : PERCENTILES) {
+            row[i++] = millis(histogram.getValueAtPercentile(percentile));
+        }
+        row[i++] = millis(histogram.getMaxNanos());
+        row[i] = Boolean.toString(!latency.equals("service") && result.isCoordinatedOmissionCorrected());
+        return row;
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,93 @@
+package com.bondarenko.loadtest;
+
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The table and the template calls driven by a load test.
+ */
+class Workload {
+    private static final RowMapper<Object[]> ROW_MAPPER = resultSet ->
+            new Object[]{resultSet.getInt(1), resultSet.getString(2), resultSet.getLong(3)};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tableRows;
+    private final int pageSize;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    Workload(JdbcTemplate jdbcTemplate, LoadTestConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableRows = config.getTableRows();
+        this.pageSize = config.getPageSize();
+        Map<Operation, Integer> mix = config.getMix();
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Creates and fills the load test table, replacing any previous one.
+     */
+    static void createTable(DataSource dataSource, int rows) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS load_test");
+                statement.execute("CREATE TABLE load_test (id INT PRIMARY KEY, name VARCHAR(64), counter BIGINT)");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO load_test VALUES (?, ?, 0)")) {
+                for (int id = 1; id <= rows; id++) {
+                    statement.setInt(1, id);
+                    statement.setString(2, "name-" + id);
+                    statement.addBatch();
+                    if (id % 1000 == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    void execute(Operation operation) {
+        int id = ThreadLocalRandom.current().nextInt(tableRows) + 1;
+        switch (operation) {
+            case QUERY:
+                jdbcTemplate.query("SELECT id, name, counter FROM load_test WHERE id BETWEEN ? AND ?",
+                        ROW_MAPPER, id, id + pageSize - 1);
+                break;
+            case QUERY_FOR_OBJECT:
+                jdbcTemplate.queryForObject("SELECT id, name, counter FROM load_test WHERE id = ?", ROW_MAPPER, id);
+                break;
+            case UPDATE:
+                jdbcTemplate.update("UPDATE load_test SET counter = counter + 1 WHERE id = ?", id);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.bondarenko.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @DisplayName("Test small values are recorded exactly")
+    @Test
+    void record_ShouldKeepSmallValuesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getMaxNanos());
+        assertEquals(50.5, histogram.getMeanNanos(), 0.001);
+    }
+
+    @DisplayName("Test percentiles of large values stay within the bucket precision")
+    @Test
+    void getValueAtPercentile_ShouldBeWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000_000);
+        }
+
+        assertWithinPrecision(5_000_000_000L, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(9_900_000_000L, histogram.getValueAtPercentile(99));
+        assertWithinPrecision(9_990_000_000L, histogram.getValueAtPercentile(99.9));
+        assertEquals(10_000_000_000L, histogram.getMaxNanos());
+    }
+
+    @DisplayName("Test bucket index and highest value agree for every magnitude")
+    @Test
+    void indexOf_ShouldMapValuesIntoTheirBucket() {
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValueOf(index - 1) < value);
+        }
+    }
+
+    @DisplayName("Test empty histogram reports zero")
+    @Test
+    void getValueAtPercentile_ShouldReturnZero_WhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMeanNanos(), 0.0);
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 60, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,151 @@
+package com.bondarenko.loadtest;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoadTestRunnerTest {
+    private static JdbcConnectionPool dataSource;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = JdbcConnectionPool.create("jdbc:h2:mem:loadtest_test;DB_CLOSE_DELAY=-1", "sa", "sa");
+        LoadTestRunner.createTable(dataSource, 1000);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.dispose();
+    }
+
+    @DisplayName("Test closed loop records every operation of the mix")
+    @Test
+    void run_ShouldRecordAllOperations_InClosedLoop() throws Exception {
+        LoadTestConfig config = config(LoadTestConfig.Mode.CLOSED, 0);
+
+        LoadTestResult result = new LoadTestRunner(dataSource, config).run();
+
+        assertTrue(result.getTotal().getResponseTime().getTotalCount() > 0);
+        assertEquals(0, result.getTotal().getErrors());
+        for (Operation operation : Operation.values()) {
+            assertTrue(result.getStats().get(operation).getResponseTime().getTotalCount() > 0, operation.name());
+        }
+        assertTrue(result.getThroughput(result.getTotal()) > 0);
+    }
+
+    @DisplayName("Test open loop issues calls at the target rate")
+    @Test
+    void run_ShouldKeepTargetRate_InOpenLoop() throws Exception {
+        LoadTestConfig config = config(LoadTestConfig.Mode.OPEN, 500);
+
+        LoadTestResult result = new LoadTestRunner(dataSource, config).run();
+
+        long count = result.getTotal().getResponseTime().getTotalCount();
+        assertTrue(count >= 200 && count <= 300, "count was " + count);
+        LatencyHistogram response = result.getTotal().getResponseTime();
+        LatencyHistogram service = result.getTotal().getServiceTime();
+        assertTrue(response.getValueAtPercentile(99) >= service.getValueAtPercentile(50));
+    }
+
+    @DisplayName("Test report contains a row per operation and latency kind")
+    @Test
+    void writeCsv_ShouldWriteRowPerOperation() throws Exception {
+        LoadTestResult result = new LoadTestRunner(dataSource, config(LoadTestConfig.Mode.CLOSED, 0)).run();
+        StringWriter csv = new StringWriter();
+
+        new ReportWriter(result).writeCsv(csv);
+
+        String[] lines = csv.toString().split("\n");
+        assertEquals(1 + (Operation.values().length + 1) * 3, lines.length);
+        assertTrue(lines[0].startsWith("operation,latency,count"));
+        assertTrue(lines[1].startsWith("all,response,"));
+        assertTrue(lines[1].endsWith(",false"));
+    }
+
+    @DisplayName("Test report marks response latency of a paced loop as corrected")
+    @Test
+    void writeCsv_ShouldMarkCorrectedResponseLatency_WhenLoopIsPaced() throws Exception {
+        LoadTestResult result = new LoadTestRunner(dataSource, config(LoadTestConfig.Mode.CLOSED, 500)).run();
+        StringWriter csv = new StringWriter();
+
+        new ReportWriter(result).writeCsv(csv);
+
+        String[] lines = csv.toString().split("\n");
+        assertTrue(result.isCoordinatedOmissionCorrected());
+        assertTrue(lines[0].endsWith(",co_corrected"));
+        assertTrue(lines[1].endsWith(",true"));
+        assertTrue(lines[2].startsWith("all,service,") && lines[2].endsWith(",false"));
+        assertTrue(lines[3].startsWith("all,error,") && lines[3].endsWith(",true"));
+    }
+
+    @DisplayName("Test failed calls are recorded with their latency")
+    @Test
+    void run_ShouldRecordErrorLatencies_WhenCallsFail() throws Exception {
+        DataSource failing = mock(DataSource.class);
+        when(failing.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+
+        LoadTestResult result = new LoadTestRunner(failing, config(LoadTestConfig.Mode.CLOSED, 500)).run();
+
+        long errors = result.getTotal().getErrors();
+        assertTrue(errors > 0);
+        assertEquals(errors, result.getTotal().getErrorTime().getTotalCount());
+        assertEquals(0, result.getTotal().getResponseTime().getTotalCount());
+    }
+
+    @DisplayName("Test open loop records calls still in flight after the drain timeout as errors")
+    @Test
+    void run_ShouldRecordAbandonedCallsAsErrors_WhenDrainTimesOut() throws Exception {
+        DataSource stalled = mock(DataSource.class);
+        when(stalled.getConnection()).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SQLException("Interrupted while waiting for a connection");
+        });
+        LoadTestConfig config = config(LoadTestConfig.Mode.OPEN, 100);
+        config.setDrainTimeout(Duration.ofMillis(100));
+        long start = System.nanoTime();
+
+        LoadTestResult result = new LoadTestRunner(stalled, config).run();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        long errors = result.getTotal().getErrors();
+        assertTrue(errors >= 40 && errors <= 60, "errors were " + errors);
+        assertEquals(errors, result.getTotal().getErrorTime().getTotalCount());
+        assertTrue(result.getTotal().getErrorTime().getValueAtPercentile(50) >= Duration.ofMillis(100).toNanos());
+    }
+
+    @DisplayName("Test open loop requires a target rate")
+    @Test
+    void constructor_ShouldThrowException_WhenOpenLoopHasNoRate() {
+        LoadTestConfig config = config(LoadTestConfig.Mode.OPEN, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> new LoadTestRunner(dataSource, config));
+    }
+
+    private static LoadTestConfig config(LoadTestConfig.Mode mode, double targetRate) {
+        LoadTestConfig config = new LoadTestConfig();
+        config.setMode(mode);
+        config.setThreads(4);
+        config.setTargetRate(targetRate);
+        config.setWarmup(Duration.ofMillis(100));
+        config.setDuration(Duration.ofMillis(500));
+        config.setTableRows(1000);
+        return config;
+    }
+}
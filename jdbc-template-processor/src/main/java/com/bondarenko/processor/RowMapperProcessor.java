@@ -0,0 +1,381 @@
+package com.bondarenko.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a RowMapper and a ParameterExtractor for every class annotated with
+ * {@code com.bondarenko.mapper.annotation.JdbcEntity}.
+ * The generated mapper reads each column through the getter matching the field type at an index resolved once per
+ * ResultSet, so no reflection is involved at run time.
+ */
+@SupportedAnnotationTypes(RowMapperProcessor.JDBC_ENTITY)
+public class RowMapperProcessor extends AbstractProcessor {
+    static final String JDBC_ENTITY = "com.bondarenko.mapper.annotation.JdbcEntity";
+    private static final String COLUMN = "com.bondarenko.mapper.annotation.Column";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@JdbcEntity can only be applied to classes");
+                    continue;
+                }
+                TypeElement entity = (TypeElement) element;
+                try {
+                    List<Property> properties = collectProperties(entity);
+                    if (properties != null) {
+                        writeRowMapper(entity, properties);
+                        writeParameterExtractor(entity, properties);
+                    }
+                } catch (IOException e) {
+                    error(entity, "Could not generate mapper: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private List<Property> collectProperties(TypeElement entity) {
+        if (entity.getNestingKind() != NestingKind.TOP_LEVEL) {
+            error(entity, "@JdbcEntity class must be a top-level class");
+            return null;
+        }
+        if (entity.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(entity, "@JdbcEntity class must not be abstract");
+            return null;
+        }
+        boolean hasNoArgConstructor = ElementFilter.constructorsIn(entity.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty()
+                        && !constructor.getModifiers().contains(Modifier.PRIVATE));
+        if (!hasNoArgConstructor) {
+            error(entity, "@JdbcEntity class needs a non-private no-argument constructor");
+            return null;
+        }
+
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement type = entity; type != null; type = superclassOf(type)) {
+            hierarchy.add(0, type);
+        }
+
+        List<Property> properties = new ArrayList<>();
+        boolean valid = true;
+        for (TypeElement type : hierarchy) {
+            List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+                        || modifiers.contains(Modifier.FINAL)) {
+                    continue;
+                }
+                String name = field.getSimpleName().toString();
+                String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                boolean fieldAccessible = !modifiers.contains(Modifier.PRIVATE);
+                String setter = findMethod(methods, "set" + capitalized, 1, field.asType());
+                String getter = findMethod(methods, "get" + capitalized, 0, field.asType());
+                if (getter == null && field.asType().getKind() == TypeKind.BOOLEAN) {
+                    getter = findMethod(methods, "is" + capitalized, 0, field.asType());
+                }
+                if ((setter == null || getter == null) && !fieldAccessible) {
+                    error(field, "Field '" + name + "' needs a getter and a setter or must not be private");
+                    valid = false;
+                    continue;
+                }
+                properties.add(new Property(name, columnName(field), field.asType(), setter, getter));
+            }
+        }
+        return valid ? properties : null;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private String findMethod(List<ExecutableElement> methods, String name, int parameterCount, TypeMirror fieldType) {
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name)
+                    && method.getParameters().size() == parameterCount
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                TypeMirror type = parameterCount == 0 ? method.getReturnType() : method.getParameters().get(0).asType();
+                if (processingEnv.getTypeUtils().isSameType(type, fieldType)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String columnName(VariableElement field) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(COLUMN)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return entry.getValue().getValue().toString();
+                    }
+                }
+            }
+        }
+        return toSnakeCase(field.getSimpleName().toString());
+    }
+
+    static String toSnakeCase(String name) {
+        StringBuilder snakeCase = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    snakeCase.append('_');
+                }
+                snakeCase.append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return snakeCase.toString();
+    }
+
+    private void writeRowMapper(TypeElement entity, List<Property> properties) throws IOException {
+        String packageName = packageOf(entity);
+        String entityName = entity.getSimpleName().toString();
+        String mapperName = entityName + "RowMapper";
+
+        StringBuilder source = new StringBuilder();
+        appendPackage(source, packageName);
+        source.append("import com.bondarenko.mapper.ColumnIndexResolver;\n")
+                .append("import com.bondarenko.mapper.RowMapper;\n\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n\n")
+                .append("/**\n * Generated by ").append(getClass().getName()).append(" for {@link ")
+                .append(entityName).append("}.\n */\n")
+                .append("public class ").append(mapperName).append(" implements RowMapper<").append(entityName).append("> {\n")
+                .append("    private final ColumnIndexResolver columnIndexResolver = new ColumnIndexResolver(")
+                .append(columnList(properties)).append(");\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(entityName).append(" map(ResultSet resultSet) throws SQLException {\n")
+                .append("        int[] columns = columnIndexResolver.resolve(resultSet);\n")
+                .append("        ").append(entityName).append(" entity = new ").append(entityName).append("();\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            source.append("        if (columns[").append(i).append("] > 0) {\n");
+            String index = "columns[" + i + "]";
+            String boxedGetter = boxedGetter(property.type);
+            String value;
+            if (isCharacter(property.type)) {
+                // An empty string or SQL NULL has no first character, so it maps to '\0', or to null when boxed
+                source.append("            String value").append(i)
+                        .append(" = resultSet.getString(").append(index).append(");\n");
+                String firstChar = "value" + i + ".isEmpty() ? '\\0' : value" + i + ".charAt(0)";
+                value = property.type.getKind() == TypeKind.CHAR
+                        ? "value" + i + " == null || " + firstChar
+                        : "value" + i + " == null ? null : " + firstChar;
+            } else if (boxedGetter != null) {
+                source.append("            ").append(primitiveOf(property.type)).append(" value").append(i)
+                        .append(" = resultSet.").append(boxedGetter).append('(').append(index).append(");\n");
+                value = "resultSet.wasNull() ? null : value" + i;
+            } else {
+                value = readExpression(property.type, index);
+            }
+            source.append("            ").append(assignment(property, value)).append('\n')
+                    .append("        }\n");
+        }
+        source.append("        return entity;\n")
+                .append("    }\n")
+                .append("}\n");
+        write(entity, packageName, mapperName, source);
+    }
+
+    private void writeParameterExtractor(TypeElement entity, List<Property> properties) throws IOException {
+        String packageName = packageOf(entity);
+        String entityName = entity.getSimpleName().toString();
+        String extractorName = entityName + "ParameterExtractor";
+
+        StringBuilder source = new StringBuilder();
+        appendPackage(source, packageName);
+        source.append("import com.bondarenko.mapper.ParameterExtractor;\n\n")
+                .append("/**\n * Generated by ").append(getClass().getName()).append(" for {@link ")
+                .append(entityName).append("}.\n */\n")
+                .append("public class ").append(extractorName).append(" implements ParameterExtractor<")
+                .append(entityName).append("> {\n")
+                .append("    private static final String[] COLUMNS = {").append(columnList(properties)).append("};\n\n")
+                .append("    @Override\n")
+                .append("    public String[] getColumnNames() {\n")
+                .append("        return COLUMNS.clone();\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Object[] extract(").append(entityName).append(" entity) {\n")
+                .append("        return new Object[]{");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (i > 0) {
+                source.append(", ");
+            }
+            source.append(property.getter != null ? "entity." + property.getter + "()" : "entity." + property.name);
+        }
+        source.append("};\n")
+                .append("    }\n")
+                .append("}\n");
+        write(entity, packageName, extractorName, source);
+    }
+
+    private String readExpression(TypeMirror type, String index) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "resultSet.getBoolean(" + index + ")";
+            case BYTE:
+                return "resultSet.getByte(" + index + ")";
+            case SHORT:
+                return "resultSet.getShort(" + index + ")";
+            case INT:
+                return "resultSet.getInt(" + index + ")";
+            case LONG:
+                return "resultSet.getLong(" + index + ")";
+            case FLOAT:
+                return "resultSet.getFloat(" + index + ")";
+            case DOUBLE:
+                return "resultSet.getDouble(" + index + ")";
+            case ARRAY:
+                if (type.toString().equals("byte[]")) {
+                    return "resultSet.getBytes(" + index + ")";
+                }
+                break;
+            default:
+                break;
+        }
+        String typeName = processingEnv.getTypeUtils().erasure(type).toString();
+        switch (typeName) {
+            case "java.lang.String":
+                return "resultSet.getString(" + index + ")";
+            case "java.math.BigDecimal":
+                return "resultSet.getBigDecimal(" + index + ")";
+            case "java.sql.Date":
+                return "resultSet.getDate(" + index + ")";
+            case "java.sql.Time":
+                return "resultSet.getTime(" + index + ")";
+            case "java.sql.Timestamp":
+                return "resultSet.getTimestamp(" + index + ")";
+            default:
+                return "resultSet.getObject(" + index + ", " + typeName + ".class)";
+        }
+    }
+
+    private static boolean isCharacter(TypeMirror type) {
+        return type.getKind() == TypeKind.CHAR || type.toString().equals("java.lang.Character");
+    }
+
+    private static String boxedGetter(TypeMirror type) {
+        switch (type.toString()) {
+            case "java.lang.Boolean":
+                return "getBoolean";
+            case "java.lang.Byte":
+                return "getByte";
+            case "java.lang.Short":
+                return "getShort";
+            case "java.lang.Integer":
+                return "getInt";
+            case "java.lang.Long":
+                return "getLong";
+            case "java.lang.Float":
+                return "getFloat";
+            case "java.lang.Double":
+                return "getDouble";
+            default:
+                return null;
+        }
+    }
+
+    private static String primitiveOf(TypeMirror boxedType) {
+        String simpleName = boxedType.toString().substring("java.lang.".length());
+        return simpleName.equals("Integer") ? "int" : simpleName.toLowerCase();
+    }
+
+    private static String assignment(Property property, String value) {
+        if (property.setter != null) {
+            return "entity." + property.setter + "(" + value + ");";
+        }
+        return "entity." + property.name + " = " + value + ";";
+    }
+
+    private static String columnList(List<Property> properties) {
+        StringBuilder columns = new StringBuilder();
+        for (int i = 0; i < properties.size(); i++) {
+            if (i > 0) {
+                columns.append(", ");
+            }
+            columns.append('"').append(properties.get(i).column.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return columns.toString();
+    }
+
+    private String packageOf(TypeElement entity) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(entity);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static void appendPackage(StringBuilder source, String packageName) {
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+    }
+
+    private void write(TypeElement entity, String packageName, String className, StringBuilder source) throws IOException {
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, entity).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static class Property {
+        private final String name;
+        private final String column;
+        private final TypeMirror type;
+        private final String setter;
+        private final String getter;
+
+        private Property(String name, String column, TypeMirror type, String setter, String getter) {
+            this.name = name;
+            this.column = column;
+            this.type = type;
+            this.setter = setter;
+            this.getter = getter;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.bondarenko.processor;
+
+import com.bondarenko.mapper.ParameterExtractor;
+import com.bondarenko.mapper.RowMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowMapperProcessorTest {
+    private static final String ENTITY_SOURCE = "package sample;\n" +
+            "import com.bondarenko.mapper.annotation.Column;\n" +
+            "import com.bondarenko.mapper.annotation.JdbcEntity;\n" +
+            "@JdbcEntity\n" +
+            "public class Order {\n" +
+            "    private long id;\n" +
+            "    private String customerName;\n" +
+            "    @Column(\"total_amount\") private java.math.BigDecimal total;\n" +
+            "    Integer quantity;\n" +
+            "    private transient String ignored;\n" +
+            "    public long getId() { return id; }\n" +
+            "    public void setId(long id) { this.id = id; }\n" +
+            "    public String getCustomerName() { return customerName; }\n" +
+            "    public void setCustomerName(String customerName) { this.customerName = customerName; }\n" +
+            "    public java.math.BigDecimal getTotal() { return total; }\n" +
+            "    public void setTotal(java.math.BigDecimal total) { this.total = total; }\n" +
+            "    public Integer getQuantity() { return quantity; }\n" +
+            "}\n";
+
+    @TempDir
+    Path tempDir;
+
+    @DisplayName("Should generate a RowMapper that maps columns by index and by name")
+    @Test
+    void shouldGenerateRowMapper() throws Exception {
+        ClassLoader classLoader = compile(ENTITY_SOURCE);
+        @SuppressWarnings("unchecked")
+        RowMapper<Object> rowMapper = (RowMapper<Object>) classLoader.loadClass("sample.OrderRowMapper")
+                .getDeclaredConstructor().newInstance();
+        Class<?> orderClass = classLoader.loadClass("sample.Order");
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:processor;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT 1 AS id, 'Alice' AS customer_name, 10.5 AS total_amount, NULL AS quantity")) {
+                assertTrue(resultSet.next());
+                Object order = rowMapper.map(resultSet);
+                assertEquals(1L, orderClass.getMethod("getId").invoke(order));
+                assertEquals("Alice", orderClass.getMethod("getCustomerName").invoke(order));
+                assertEquals(new BigDecimal("10.5"), orderClass.getMethod("getTotal").invoke(order));
+                assertNull(orderClass.getMethod("getQuantity").invoke(order));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT 7 AS quantity, 'Bob' AS customer_name")) {
+                assertTrue(resultSet.next());
+                Object order = rowMapper.map(resultSet);
+                assertEquals(0L, orderClass.getMethod("getId").invoke(order));
+                assertEquals("Bob", orderClass.getMethod("getCustomerName").invoke(order));
+                assertEquals(7, orderClass.getMethod("getQuantity").invoke(order));
+                assertFalse(resultSet.next());
+            }
+        }
+    }
+
+    @DisplayName("Should generate a ParameterExtractor in column order")
+    @Test
+    void shouldGenerateParameterExtractor() throws Exception {
+        ClassLoader classLoader = compile(ENTITY_SOURCE);
+        @SuppressWarnings("unchecked")
+        ParameterExtractor<Object> extractor = (ParameterExtractor<Object>) classLoader
+                .loadClass("sample.OrderParameterExtractor").getDeclaredConstructor().newInstance();
+        Class<?> orderClass = classLoader.loadClass("sample.Order");
+        Object order = orderClass.getDeclaredConstructor().newInstance();
+        orderClass.getMethod("setId", long.class).invoke(order, 5L);
+        orderClass.getMethod("setCustomerName", String.class).invoke(order, "Carol");
+
+        assertArrayEquals(new String[]{"id", "customer_name", "total_amount", "quantity"}, extractor.getColumnNames());
+        assertArrayEquals(new Object[]{5L, "Carol", null, null}, extractor.extract(order));
+        assertEquals("INSERT INTO orders (id, customer_name, total_amount, quantity) VALUES (?, ?, ?, ?)",
+                extractor.insertSql("orders"));
+    }
+
+    @DisplayName("Should map NULL and empty strings of char fields without failing")
+    @Test
+    void shouldMapCharFieldsSafely() throws Exception {
+        String source = "package sample;\n" +
+                "@com.bondarenko.mapper.annotation.JdbcEntity\n" +
+                "public class Grade {\n" +
+                "    public char letter;\n" +
+                "    public Character modifier;\n" +
+                "}\n";
+        ClassLoader classLoader = compile(source);
+        @SuppressWarnings("unchecked")
+        RowMapper<Object> rowMapper = (RowMapper<Object>) classLoader.loadClass("sample.GradeRowMapper")
+                .getDeclaredConstructor().newInstance();
+        Class<?> gradeClass = classLoader.loadClass("sample.Grade");
+
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:processor;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT 'A' AS letter, '+' AS modifier")) {
+                assertTrue(resultSet.next());
+                Object grade = rowMapper.map(resultSet);
+                assertEquals('A', gradeClass.getField("letter").get(grade));
+                assertEquals('+', gradeClass.getField("modifier").get(grade));
+            }
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT CAST(NULL AS VARCHAR) AS letter, CAST(NULL AS VARCHAR) AS modifier")) {
+                assertTrue(resultSet.next());
+                Object grade = rowMapper.map(resultSet);
+                assertEquals('\0', gradeClass.getField("letter").get(grade));
+                assertNull(gradeClass.getField("modifier").get(grade));
+            }
+            try (ResultSet resultSet = statement.executeQuery("SELECT '' AS letter, '' AS modifier")) {
+                assertTrue(resultSet.next());
+                Object grade = rowMapper.map(resultSet);
+                assertEquals('\0', gradeClass.getField("letter").get(grade));
+                assertEquals('\0', gradeClass.getField("modifier").get(grade));
+            }
+        }
+    }
+
+    @DisplayName("Should report an error for private fields without accessors")
+    @Test
+    void shouldFailForInaccessibleField() throws Exception {
+        String source = "package sample;\n" +
+                "@com.bondarenko.mapper.annotation.JdbcEntity\n" +
+                "public class Broken {\n" +
+                "    private int hidden;\n" +
+                "}\n";
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        boolean success = runCompiler(source, diagnostics);
+
+        assertFalse(success);
+        assertTrue(diagnostics.getDiagnostics().stream()
+                .anyMatch(diagnostic -> diagnostic.getMessage(null).contains("'hidden'")));
+    }
+
+    private ClassLoader compile(String source) throws Exception {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertTrue(runCompiler(source, diagnostics), diagnostics.getDiagnostics().toString());
+        return new URLClassLoader(new URL[]{tempDir.resolve("classes").toUri().toURL()}, getClass().getClassLoader());
+    }
+
+    private boolean runCompiler(String source, DiagnosticCollector<JavaFileObject> diagnostics)
+            throws IOException, URISyntaxException {
+        Path sourceFile = tempDir.resolve("src/sample/" + source.split("public class ")[1].split(" ")[0] + ".java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, source);
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        Path generated = Files.createDirectories(tempDir.resolve("generated"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            String classpath = Path.of(RowMapper.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    List.of("-classpath", classpath, "-d", classes.toString(), "-s", generated.toString(),
+                            "-Xlint:none"),
+                    null, fileManager.getJavaFileObjects(new File(sourceFile.toString())));
+            task.setProcessors(List.of(new RowMapperProcessor()));
+            return task.call();
+        }
+    }
+}
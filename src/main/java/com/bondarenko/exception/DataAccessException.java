@@ -5,6 +5,32 @@ public class DataAccessException extends RuntimeException {
         super(exception);
     }
 
+    public DataAccessException(String message) {
+        super(message);
+    }
+
     public DataAccessException(String message, Exception exception) {
+        super(message, exception);
+    }
+
+    /**
+     * Constructs an exception that optionally skips capturing its stack trace, for conditions that are expected
+     * often enough that filling the stack trace would dominate their cost. The cause keeps its own stack trace.
+     *
+     * @param exception          The cause.
+     * @param writableStackTrace false to skip capturing the stack trace of this exception.
+     */
+    protected DataAccessException(Exception exception, boolean writableStackTrace) {
+        super(exception == null ? null : exception.toString(), exception, true, writableStackTrace);
+    }
+
+    /**
+     * Constructs an exception without a cause that optionally skips capturing its stack trace.
+     *
+     * @param message            The detail message.
+     * @param writableStackTrace false to skip capturing the stack trace of this exception.
+     */
+    protected DataAccessException(String message, boolean writableStackTrace) {
+        super(message, null, true, writableStackTrace);
     }
 }
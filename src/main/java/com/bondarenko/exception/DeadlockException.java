@@ -0,0 +1,11 @@
+package com.bondarenko.exception;
+
+/**
+ * Thrown when the database rolled back the transaction to resolve a deadlock or a serialization failure.
+ * The transaction can usually be retried as a whole.
+ */
+public class DeadlockException extends DataAccessException {
+    public DeadlockException(Exception exception) {
+        super(exception);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bondarenko.exception;
+
+/**
+ * Thrown when an insert or update violates a primary key or unique constraint.
+ */
+public class DuplicateKeyException extends DataAccessException {
+    public DuplicateKeyException(Exception exception) {
+        super(exception);
+    }
+
+    DuplicateKeyException(Exception exception, boolean writableStackTrace) {
+        super(exception, writableStackTrace);
+    }
+}
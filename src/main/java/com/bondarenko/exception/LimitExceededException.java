@@ -0,0 +1,11 @@
+package com.bondarenko.exception;
+
+/**
+ * Thrown when a call is rejected because the concurrency limit of its partition is reached. Rejections are
+ * frequent under overload, so the exception is created without a stack trace.
+ */
+public class LimitExceededException extends DataAccessException {
+    public LimitExceededException(String message) {
+        super(message, false);
+    }
+}
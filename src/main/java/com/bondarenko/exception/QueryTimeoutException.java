@@ -0,0 +1,11 @@
+package com.bondarenko.exception;
+
+public class QueryTimeoutException extends DataAccessException {
+    public QueryTimeoutException(String message) {
+        super(message);
+    }
+
+    public QueryTimeoutException(Exception exception) {
+        super(exception);
+    }
+}
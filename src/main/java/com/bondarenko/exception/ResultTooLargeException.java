@@ -0,0 +1,21 @@
+package com.bondarenko.exception;
+
+public class ResultTooLargeException extends DataAccessException {
+    private final long rowCount;
+    private final long estimatedBytes;
+
+    public ResultTooLargeException(long rowCount, long estimatedBytes, long maxBytes) {
+        super("Query result exceeded the memory budget of " + maxBytes
+                + " bytes after " + rowCount + " rows (estimated " + estimatedBytes + " bytes)");
+        this.rowCount = rowCount;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+}
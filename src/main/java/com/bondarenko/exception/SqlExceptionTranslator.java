@@ -0,0 +1,116 @@
+package com.bondarenko.exception;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates SQLExceptions into the DataAccessException hierarchy by their SQLState and vendor error code, so
+ * callers can tell a duplicate key from a deadlock without parsing messages.
+ * <p>
+ * The classification is a lookup in tables built once per class: an exact SQLState, then the vendor codes that
+ * disambiguate the generic integrity SQLState {@code 23000}, then the SQLState class of connection failures. Exceptions
+ * without a SQLState fall back to the JDBC exception subclass. Anything unclassified becomes a plain
+ * DataAccessException.
+ * <p>
+ * Duplicate keys are often an expected outcome, for example on insert-if-absent paths, where capturing a stack
+ * trace for every rejected insert is the main cost of the failure. A translator created with
+ * {@code stacklessDuplicateKeys} throws them without a stack trace of their own.
+ */
+public class SqlExceptionTranslator {
+    private static final Map<String, Category> SQL_STATES = Map.of(
+            "23505", Category.DUPLICATE_KEY,
+            "40001", Category.DEADLOCK,
+            "40P01", Category.DEADLOCK,
+            "57014", Category.TIMEOUT,
+            "HYT00", Category.TIMEOUT,
+            "HYT01", Category.TIMEOUT);
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23000";
+    // MySQL 1062 and 1586, SQL Server 2601 and 2627, Oracle 1 (ORA-00001)
+    private static final Set<Integer> DUPLICATE_KEY_VENDOR_CODES = Set.of(1062, 1586, 2601, 2627, 1);
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    private final boolean stacklessDuplicateKeys;
+
+    /**
+     * Constructs a translator that captures the stack trace of every exception.
+     */
+    public SqlExceptionTranslator() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new SqlExceptionTranslator.
+     *
+     * @param stacklessDuplicateKeys true to throw DuplicateKeyExceptions without a stack trace of their own.
+     */
+    public SqlExceptionTranslator(boolean stacklessDuplicateKeys) {
+        this.stacklessDuplicateKeys = stacklessDuplicateKeys;
+    }
+
+    public boolean isStacklessDuplicateKeys() {
+        return stacklessDuplicateKeys;
+    }
+
+    /**
+     * Translates the given exception.
+     *
+     * @param exception The exception thrown by the driver.
+     * @return The matching DataAccessException, with the given exception as its cause.
+     */
+    public DataAccessException translate(SQLException exception) {
+        switch (classify(exception)) {
+            case DUPLICATE_KEY:
+                return new DuplicateKeyException(exception, !stacklessDuplicateKeys);
+            case DEADLOCK:
+                return new DeadlockException(exception);
+            case TIMEOUT:
+                return new QueryTimeoutException(exception);
+            case TRANSIENT_CONNECTION:
+                return new TransientConnectionException(exception);
+            default:
+                return new DataAccessException(exception);
+        }
+    }
+
+    private static Category classify(SQLException exception) {
+        String sqlState = exception.getSQLState();
+        if (sqlState == null && exception.getNextException() != null) {
+            sqlState = exception.getNextException().getSQLState();
+        }
+        if (sqlState != null) {
+            Category category = SQL_STATES.get(sqlState);
+            if (category != null) {
+                return category;
+            }
+            if (sqlState.equals(INTEGRITY_CONSTRAINT_VIOLATION)
+                    && DUPLICATE_KEY_VENDOR_CODES.contains(exception.getErrorCode())) {
+                return Category.DUPLICATE_KEY;
+            }
+            if (sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                return Category.TRANSIENT_CONNECTION;
+            }
+        }
+        if (exception instanceof SQLTimeoutException) {
+            return Category.TIMEOUT;
+        }
+        if (exception instanceof SQLTransactionRollbackException) {
+            return Category.DEADLOCK;
+        }
+        if (exception instanceof SQLTransientConnectionException) {
+            return Category.TRANSIENT_CONNECTION;
+        }
+        return Category.OTHER;
+    }
+
+    private enum Category {
+        DUPLICATE_KEY,
+        DEADLOCK,
+        TIMEOUT,
+        TRANSIENT_CONNECTION,
+        OTHER
+    }
+}
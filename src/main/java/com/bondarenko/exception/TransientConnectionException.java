@@ -0,0 +1,10 @@
+package com.bondarenko.exception;
+
+/**
+ * Thrown when the connection to the database failed or was lost. The operation may succeed on a new connection.
+ */
+public class TransientConnectionException extends DataAccessException {
+    public TransientConnectionException(Exception exception) {
+        super(exception);
+    }
+}
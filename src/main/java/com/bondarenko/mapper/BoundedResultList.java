@@ -0,0 +1,25 @@
+package com.bondarenko.mapper;
+
+import java.util.ArrayList;
+
+/**
+ * List of mapped rows that records whether reading stopped early because a {@link MemoryBudget} was exhausted.
+ *
+ * @param <T> The type of the mapped rows.
+ */
+public class BoundedResultList<T> extends ArrayList<T> {
+    private boolean truncated;
+
+    /**
+     * Returns whether the query produced more rows than fit into the memory budget.
+     *
+     * @return true if rows were dropped from the end of the result.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    void markTruncated() {
+        this.truncated = true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.bondarenko.mapper;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Resolves the ResultSet indexes of a fixed list of column names, once per ResultSet.
+ * A column is first expected at the position it is declared at, and looked up by label when it is not there.
+ * The last resolution is cached, so mapping consecutive rows of the same ResultSet reads columns by index only.
+ * Generated row mappers share one resolver between threads; each thread re-resolves when it sees a different ResultSet.
+ */
+public class ColumnIndexResolver {
+    private final String[] columns;
+    private volatile Resolution lastResolution;
+
+    public ColumnIndexResolver(String... columns) {
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Returns the 1-based index of every column in the given ResultSet.
+     *
+     * @param resultSet The ResultSet being mapped.
+     * @return The column indexes in declaration order; 0 for columns missing from the ResultSet.
+     * @throws SQLException If the ResultSet metadata cannot be read.
+     */
+    public int[] resolve(ResultSet resultSet) throws SQLException {
+        Resolution resolution = lastResolution;
+        if (resolution != null && resolution.resultSet.get() == resultSet) {
+            return resolution.indexes;
+        }
+
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (i < columnCount && columns[i].equalsIgnoreCase(labels[i])) {
+                indexes[i] = i + 1;
+            } else {
+                for (int j = 0; j < columnCount; j++) {
+                    if (columns[i].equalsIgnoreCase(labels[j])) {
+                        indexes[i] = j + 1;
+                        break;
+                    }
+                }
+            }
+        }
+        lastResolution = new Resolution(resultSet, indexes);
+        return indexes;
+    }
+
+    private static class Resolution {
+        private final WeakReference<ResultSet> resultSet;
+        private final int[] indexes;
+
+        private Resolution(ResultSet resultSet, int[] indexes) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.indexes = indexes;
+        }
+    }
+}
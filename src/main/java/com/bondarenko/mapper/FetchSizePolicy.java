@@ -0,0 +1,65 @@
+package com.bondarenko.mapper;
+
+/**
+ * Controls the JDBC fetch size of a query.
+ * Statements start with the initial fetch size. Once the first batch of rows has been read, the average row width
+ * measured on that batch is used to resize the fetch size so that a single round trip transfers about
+ * {@code batchByteBudget} bytes, bounded by the minimum and maximum fetch size.
+ */
+public class FetchSizePolicy {
+    private static final int DEFAULT_INITIAL_FETCH_SIZE = 100;
+    private static final long DEFAULT_BATCH_BYTE_BUDGET = 1024 * 1024;
+    private static final int DEFAULT_MIN_FETCH_SIZE = 10;
+    private static final int DEFAULT_MAX_FETCH_SIZE = 10_000;
+
+    private final int initialFetchSize;
+    private final long batchByteBudget;
+    private final int minFetchSize;
+    private final int maxFetchSize;
+
+    /**
+     * Constructs a new FetchSizePolicy.
+     *
+     * @param initialFetchSize The fetch size used before any row has been measured.
+     * @param batchByteBudget  The number of bytes a single fetch should transfer.
+     * @param minFetchSize     The smallest fetch size the policy resizes to.
+     * @param maxFetchSize     The largest fetch size the policy resizes to.
+     */
+    public FetchSizePolicy(int initialFetchSize, long batchByteBudget, int minFetchSize, int maxFetchSize) {
+        if (initialFetchSize <= 0 || batchByteBudget <= 0 || minFetchSize <= 0 || maxFetchSize < minFetchSize) {
+            throw new IllegalArgumentException("Fetch sizes and budget should be positive and minFetchSize should not exceed maxFetchSize.");
+        }
+        this.initialFetchSize = initialFetchSize;
+        this.batchByteBudget = batchByteBudget;
+        this.minFetchSize = minFetchSize;
+        this.maxFetchSize = maxFetchSize;
+    }
+
+    /**
+     * Returns a policy starting at 100 rows and resizing towards 1 MB per fetch, between 10 and 10 000 rows.
+     *
+     * @return The default adaptive policy.
+     */
+    public static FetchSizePolicy adaptive() {
+        return new FetchSizePolicy(DEFAULT_INITIAL_FETCH_SIZE, DEFAULT_BATCH_BYTE_BUDGET, DEFAULT_MIN_FETCH_SIZE, DEFAULT_MAX_FETCH_SIZE);
+    }
+
+    public int getInitialFetchSize() {
+        return initialFetchSize;
+    }
+
+    public long getBatchByteBudget() {
+        return batchByteBudget;
+    }
+
+    /**
+     * Computes the fetch size for rows of the given average width.
+     *
+     * @param averageRowBytes The measured average row width in bytes.
+     * @return The fetch size that keeps one fetch within the byte budget.
+     */
+    public int fetchSizeFor(long averageRowBytes) {
+        long fetchSize = batchByteBudget / Math.max(1, averageRowBytes);
+        return (int) Math.max(minFetchSize, Math.min(maxFetchSize, fetchSize));
+    }
+}
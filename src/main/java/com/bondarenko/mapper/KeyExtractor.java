@@ -0,0 +1,34 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the identifying key of an object from the current row. The key column must be the last value read,
+ * so that {@link ResultSet#wasNull()} tells whether the row has no such object, as in the outer part of a
+ * LEFT JOIN.
+ */
+@FunctionalInterface
+public interface KeyExtractor {
+    long extract(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Reads the key from the column with the given label.
+     *
+     * @param columnLabel The label of the key column.
+     * @return The key extractor.
+     */
+    static KeyExtractor column(String columnLabel) {
+        return resultSet -> resultSet.getLong(columnLabel);
+    }
+
+    /**
+     * Reads the key from the column with the given index.
+     *
+     * @param columnIndex The one-based index of the key column.
+     * @return The key extractor.
+     */
+    static KeyExtractor column(int columnIndex) {
+        return resultSet -> resultSet.getLong(columnIndex);
+    }
+}
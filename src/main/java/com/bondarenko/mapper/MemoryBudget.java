@@ -0,0 +1,51 @@
+package com.bondarenko.mapper;
+
+/**
+ * Limits the estimated memory a single query result may occupy while it is collected into a list.
+ */
+public class MemoryBudget {
+    /**
+     * What happens when the estimated size of the collected rows exceeds the budget.
+     */
+    public enum OverflowAction {
+        /**
+         * Abort the query with a {@link com.bondarenko.exception.ResultTooLargeException}.
+         */
+        FAIL,
+        /**
+         * Stop reading and return the rows collected so far as a truncated {@link BoundedResultList}. Only for
+         * queries that return the {@link BoundedResultList}, so the caller can see the truncation.
+         */
+        TRUNCATE
+    }
+
+    private final long maxBytes;
+    private final OverflowAction overflowAction;
+
+    public MemoryBudget(long maxBytes, OverflowAction overflowAction) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes should be positive.");
+        }
+        if (overflowAction == null) {
+            throw new IllegalArgumentException("overflowAction should not be null.");
+        }
+        this.maxBytes = maxBytes;
+        this.overflowAction = overflowAction;
+    }
+
+    public static MemoryBudget failAfter(long maxBytes) {
+        return new MemoryBudget(maxBytes, OverflowAction.FAIL);
+    }
+
+    public static MemoryBudget truncateAfter(long maxBytes) {
+        return new MemoryBudget(maxBytes, OverflowAction.TRUNCATE);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public OverflowAction getOverflowAction() {
+        return overflowAction;
+    }
+}
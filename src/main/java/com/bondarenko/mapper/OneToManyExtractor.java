@@ -0,0 +1,164 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Folds the rows of a JOIN into parent objects with their children in a single pass over the ResultSet.
+ * <p>
+ * Each row is keyed by the parent key: the first row of a parent is mapped to the parent object, later rows of the
+ * same parent only contribute their children. Children are keyed the same way within their parent, so a child
+ * repeated by the cartesian product of several joined collections is mapped and accumulated once. A row whose key
+ * column is NULL, as produced by a LEFT JOIN without a match, contributes no object at that level. Children can
+ * themselves have children by passing another OneToManyExtractor to {@link #addChild(OneToManyExtractor, BiConsumer)}.
+ * <p>
+ * Rows of a parent do not need to be adjacent. Parents are returned in the order of their first row. Once configured,
+ * an extractor holds no per-result state and can be shared.
+ *
+ * @param <P> The type of the parent objects.
+ */
+public class OneToManyExtractor<P> implements ResultSetExtractor<List<P>> {
+    private static final int EXPECTED_PARENTS = 64;
+    private static final int EXPECTED_CHILDREN = 4;
+
+    private final KeyExtractor keyExtractor;
+    private final RowMapper<P> rowMapper;
+    private final List<ChildLink<P, ?>> children = new ArrayList<>();
+
+    private OneToManyExtractor(KeyExtractor keyExtractor, RowMapper<P> rowMapper) {
+        this.keyExtractor = keyExtractor;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Creates an extractor for parents identified by the given key.
+     *
+     * @param keyExtractor The parent key.
+     * @param rowMapper    The RowMapper creating a parent from its first row.
+     * @param <P>          The type of the parent objects.
+     * @return The extractor, without children yet.
+     */
+    public static <P> OneToManyExtractor<P> of(KeyExtractor keyExtractor, RowMapper<P> rowMapper) {
+        if (keyExtractor == null) {
+            throw new IllegalArgumentException("keyExtractor should not be null.");
+        }
+        if (rowMapper == null) {
+            throw new IllegalArgumentException("rowMapper should not be null.");
+        }
+        return new OneToManyExtractor<>(keyExtractor, rowMapper);
+    }
+
+    /**
+     * Adds a collection of children without children of their own.
+     *
+     * @param keyExtractor The child key, unique within a parent.
+     * @param rowMapper    The RowMapper creating a child from its first row.
+     * @param accumulator  Adds a child to its parent; called once per distinct child.
+     * @param <C>          The type of the child objects.
+     * @return This extractor.
+     */
+    public <C> OneToManyExtractor<P> addChild(KeyExtractor keyExtractor, RowMapper<C> rowMapper,
+                                              BiConsumer<? super P, ? super C> accumulator) {
+        return addChild(of(keyExtractor, rowMapper), accumulator);
+    }
+
+    /**
+     * Adds a collection of children described by another extractor, which may have children of its own.
+     *
+     * @param child       The extractor of the children.
+     * @param accumulator Adds a child to its parent; called once per distinct child.
+     * @param <C>         The type of the child objects.
+     * @return This extractor.
+     */
+    public <C> OneToManyExtractor<P> addChild(OneToManyExtractor<C> child, BiConsumer<? super P, ? super C> accumulator) {
+        if (child == null || accumulator == null) {
+            throw new IllegalArgumentException("child and accumulator should not be null.");
+        }
+        if (child == this) {
+            throw new IllegalArgumentException("An extractor cannot be its own child.");
+        }
+        children.add(new ChildLink<>(child, accumulator));
+        return this;
+    }
+
+    @Override
+    public List<P> extract(ResultSet resultSet) throws SQLException {
+        Level<P> level = new Level<>(EXPECTED_PARENTS);
+        while (resultSet.next()) {
+            process(resultSet, level);
+        }
+        List<P> parents = new ArrayList<>(level.entries.size());
+        for (Entry<P> entry : level.entries) {
+            parents.add(entry.value);
+        }
+        return parents;
+    }
+
+    /**
+     * Applies the current row to the given level.
+     *
+     * @return The newly created entry, the existing entry of the row's key, or null if the key is NULL.
+     */
+    private Entry<P> process(ResultSet resultSet, Level<P> level) throws SQLException {
+        long key = keyExtractor.extract(resultSet);
+        if (resultSet.wasNull()) {
+            return null;
+        }
+        Entry<P> entry = level.byKey.get(key);
+        if (entry == null) {
+            entry = new Entry<>(rowMapper.map(resultSet), children.size());
+            level.byKey.put(key, entry);
+            level.entries.add(entry);
+        }
+        for (int i = 0; i < children.size(); i++) {
+            children.get(i).process(resultSet, entry, i);
+        }
+        return entry;
+    }
+
+    private static final class ChildLink<P, C> {
+        private final OneToManyExtractor<C> extractor;
+        private final BiConsumer<? super P, ? super C> accumulator;
+
+        private ChildLink(OneToManyExtractor<C> extractor, BiConsumer<? super P, ? super C> accumulator) {
+            this.extractor = extractor;
+            this.accumulator = accumulator;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void process(ResultSet resultSet, Entry<P> parent, int index) throws SQLException {
+            Level<C> level = (Level<C>) parent.children[index];
+            if (level == null) {
+                level = new Level<>(EXPECTED_CHILDREN);
+                parent.children[index] = level;
+            }
+            int known = level.entries.size();
+            Entry<C> child = extractor.process(resultSet, level);
+            if (child != null && level.entries.size() > known) {
+                accumulator.accept(parent.value, child.value);
+            }
+        }
+    }
+
+    private static final class Level<T> {
+        private final LongKeyedMap<Entry<T>> byKey;
+        private final List<Entry<T>> entries = new ArrayList<>();
+
+        private Level(int expectedSize) {
+            this.byKey = new LongKeyedMap<>(expectedSize);
+        }
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final Level<?>[] children;
+
+        private Entry(T value, int childCount) {
+            this.value = value;
+            this.children = new Level<?>[childCount];
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.bondarenko.mapper;
+
+/**
+ * Extracts the column values of an entity in a fixed column order, for binding to insert statements.
+ *
+ * @param <T> The type of the entity.
+ */
+public interface ParameterExtractor<T> {
+    String[] getColumnNames();
+
+    Object[] extract(T entity);
+
+    /**
+     * Builds an insert statement for the given table whose placeholders match the order of {@link #extract(Object)}.
+     *
+     * @param table The table to insert into.
+     * @return The parameterized insert statement.
+     */
+    default String insertSql(String table) {
+        String[] columns = getColumnNames();
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        sql.append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+}
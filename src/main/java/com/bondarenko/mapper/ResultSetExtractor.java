@@ -0,0 +1,15 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Processes a whole ResultSet into one result, for results that do not map one row to one object, such as joins
+ * folded into an object graph. Unlike a {@link RowMapper}, the extractor iterates the ResultSet itself.
+ *
+ * @param <T> The type of the result.
+ */
+@FunctionalInterface
+public interface ResultSetExtractor<T> {
+    T extract(ResultSet resultSet) throws SQLException;
+}
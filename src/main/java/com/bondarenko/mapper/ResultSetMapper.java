@@ -1,6 +1,7 @@
 package com.bondarenko.mapper;
 
 import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.ResultTooLargeException;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -8,6 +9,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ResultSetMapper<T> {
+    private static final int DEFAULT_SAMPLE_ROWS = 100;
+    private static final int RESAMPLE_INTERVAL = 256;
+
     public T mapResultSetToEntity(ResultSet resultSet, RowMapper<T> rowMapper) {
         try {
             if (resultSet.next()) {
@@ -30,4 +34,63 @@ public class ResultSetMapper<T> {
         }
         return results;
     }
+
+    /**
+     * Maps every row like {@link #mapResultSetToList(ResultSet, RowMapper)} while measuring row widths.
+     * The first batch of rows is measured to resize the fetch size according to the fetch size policy, and every
+     * row is charged against the memory budget using the measured average width, which is refreshed periodically.
+     *
+     * @param resultSet       The ResultSet to map.
+     * @param rowMapper       The RowMapper to use for mapping each row.
+     * @param fetchSizePolicy The policy used to resize the fetch size, or null to keep the current fetch size.
+     * @param memoryBudget    The budget for the collected rows, or null for no limit.
+     * @return The mapped rows; truncated if the budget was exceeded with {@link MemoryBudget.OverflowAction#TRUNCATE}.
+     * @throws ResultTooLargeException If the budget was exceeded with {@link MemoryBudget.OverflowAction#FAIL}.
+     * @throws SQLException            If reading the result set or mapping a row fails. It is passed on unwrapped
+     *                                 so the caller can tell a cancelled statement or a lost connection apart.
+     */
+    public BoundedResultList<T> mapResultSetToList(ResultSet resultSet, RowMapper<T> rowMapper,
+                                                   FetchSizePolicy fetchSizePolicy, MemoryBudget memoryBudget)
+            throws SQLException {
+        BoundedResultList<T> results = new BoundedResultList<>();
+        if (fetchSizePolicy == null && memoryBudget == null) {
+            while (resultSet.next()) {
+                results.add(rowMapper.map(resultSet));
+            }
+            return results;
+        }
+
+        RowSizeEstimator estimator = null;
+        int sampleRows = fetchSizePolicy != null ? fetchSizePolicy.getInitialFetchSize() : DEFAULT_SAMPLE_ROWS;
+        long sampledBytes = 0;
+        long sampledCount = 0;
+        long averageRowBytes = 0;
+        long estimatedBytes = 0;
+        long rowCount = 0;
+        while (resultSet.next()) {
+            if (rowCount < sampleRows || rowCount % RESAMPLE_INTERVAL == 0) {
+                if (estimator == null) {
+                    estimator = new RowSizeEstimator(resultSet.getMetaData());
+                }
+                sampledBytes += estimator.estimate(resultSet);
+                sampledCount++;
+                averageRowBytes = sampledBytes / sampledCount;
+            }
+            estimatedBytes += averageRowBytes;
+            if (memoryBudget != null && estimatedBytes > memoryBudget.getMaxBytes()) {
+                if (memoryBudget.getOverflowAction() == MemoryBudget.OverflowAction.FAIL) {
+                    throw new ResultTooLargeException(rowCount + 1, estimatedBytes, memoryBudget.getMaxBytes());
+                }
+                results.markTruncated();
+                return results;
+            }
+
+            results.add(rowMapper.map(resultSet));
+            rowCount++;
+            if (fetchSizePolicy != null && rowCount == sampleRows) {
+                resultSet.setFetchSize(fetchSizePolicy.fetchSizeFor(averageRowBytes));
+            }
+        }
+        return results;
+    }
 }
@@ -0,0 +1,264 @@
+package com.bondarenko.mapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * One row of a result whose columns are converted only when they are read.
+ * <p>
+ * A row holds the values as the driver returns them from {@link ResultSet#getObject(int)}. A conversion to
+ * {@code String}, {@code BigDecimal} or a date-time type happens on the first access to a column with that type and
+ * its result is cached in the row, so untouched columns cost neither conversion nor allocation. Column labels are
+ * resolved through the {@link RowMetadata} shared by every row of the result.
+ * <p>
+ * Column indexes are one-based, as in JDBC. Like {@link ResultSet}, the primitive getters return 0 for null values.
+ * Rows are not thread-safe.
+ */
+public final class Row {
+    private final RowMetadata metadata;
+    private final Object[] values;
+    private Object[] converted;
+
+    private Row(RowMetadata metadata, Object[] values) {
+        this.metadata = metadata;
+        this.values = values;
+    }
+
+    /**
+     * Captures the current row of the given ResultSet.
+     *
+     * @param resultSet The ResultSet positioned on the row.
+     * @param metadata  The metadata shared by all rows of the ResultSet.
+     * @return The captured row.
+     * @throws SQLException If a value cannot be read.
+     */
+    public static Row capture(ResultSet resultSet, RowMetadata metadata) throws SQLException {
+        return capture(resultSet, metadata, null);
+    }
+
+    /**
+     * Captures the current row of the given ResultSet, replacing string values by their canonical instances.
+     *
+     * @param resultSet    The ResultSet positioned on the row.
+     * @param metadata     The metadata shared by all rows of the ResultSet.
+     * @param dictionaries The string dictionaries of the ResultSet, or null to keep the values as read.
+     * @return The captured row.
+     * @throws SQLException If a value cannot be read.
+     */
+    public static Row capture(ResultSet resultSet, RowMetadata metadata, StringDeduplication.Dictionaries dictionaries)
+            throws SQLException {
+        Object[] values = new Object[metadata.getColumnCount()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = resultSet.getObject(i + 1);
+            if (dictionaries != null && value instanceof String) {
+                value = dictionaries.canonicalize(i + 1, (String) value);
+            }
+            values[i] = value;
+        }
+        return new Row(metadata, values);
+    }
+
+    public RowMetadata getMetadata() {
+        return metadata;
+    }
+
+    public Object getObject(int columnIndex) {
+        return values[columnIndex - 1];
+    }
+
+    public Object getObject(String columnLabel) {
+        return values[metadata.indexOf(columnLabel)];
+    }
+
+    public boolean isNull(int columnIndex) {
+        return values[columnIndex - 1] == null;
+    }
+
+    public boolean isNull(String columnLabel) {
+        return values[metadata.indexOf(columnLabel)] == null;
+    }
+
+    public String getString(int columnIndex) {
+        return getString0(columnIndex - 1);
+    }
+
+    public String getString(String columnLabel) {
+        return getString0(metadata.indexOf(columnLabel));
+    }
+
+    public long getLong(int columnIndex) {
+        return getLong0(columnIndex - 1);
+    }
+
+    public long getLong(String columnLabel) {
+        return getLong0(metadata.indexOf(columnLabel));
+    }
+
+    public int getInt(int columnIndex) {
+        return Math.toIntExact(getLong0(columnIndex - 1));
+    }
+
+    public int getInt(String columnLabel) {
+        return Math.toIntExact(getLong0(metadata.indexOf(columnLabel)));
+    }
+
+    public double getDouble(int columnIndex) {
+        return getDouble0(columnIndex - 1);
+    }
+
+    public double getDouble(String columnLabel) {
+        return getDouble0(metadata.indexOf(columnLabel));
+    }
+
+    public BigDecimal getBigDecimal(int columnIndex) {
+        return getBigDecimal0(columnIndex - 1);
+    }
+
+    public BigDecimal getBigDecimal(String columnLabel) {
+        return getBigDecimal0(metadata.indexOf(columnLabel));
+    }
+
+    public LocalDateTime getLocalDateTime(int columnIndex) {
+        return getLocalDateTime0(columnIndex - 1);
+    }
+
+    public LocalDateTime getLocalDateTime(String columnLabel) {
+        return getLocalDateTime0(metadata.indexOf(columnLabel));
+    }
+
+    public LocalDate getLocalDate(int columnIndex) {
+        return getLocalDate0(columnIndex - 1);
+    }
+
+    public LocalDate getLocalDate(String columnLabel) {
+        return getLocalDate0(metadata.indexOf(columnLabel));
+    }
+
+    private String getString0(int index) {
+        Object value = values[index];
+        if (value == null || value instanceof String) {
+            return (String) value;
+        }
+        Object cached = cached(index);
+        if (cached instanceof String) {
+            return (String) cached;
+        }
+        String string = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        return cache(index, string);
+    }
+
+    private long getLong0(int index) {
+        Object value = values[index];
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return Long.parseLong(value.toString().trim());
+    }
+
+    private double getDouble0(int index) {
+        Object value = values[index];
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Double.parseDouble(value.toString().trim());
+    }
+
+    private BigDecimal getBigDecimal0(int index) {
+        Object value = values[index];
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        Object cached = cached(index);
+        if (cached instanceof BigDecimal) {
+            return (BigDecimal) cached;
+        }
+        BigDecimal decimal;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            decimal = BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            decimal = BigDecimal.valueOf(((Number) value).doubleValue());
+        } else {
+            decimal = new BigDecimal(value.toString().trim());
+        }
+        return cache(index, decimal);
+    }
+
+    private LocalDateTime getLocalDateTime0(int index) {
+        Object value = values[index];
+        if (value == null || value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        Object cached = cached(index);
+        if (cached instanceof LocalDateTime) {
+            return (LocalDateTime) cached;
+        }
+        LocalDateTime dateTime;
+        if (value instanceof Timestamp) {
+            dateTime = ((Timestamp) value).toLocalDateTime();
+        } else if (value instanceof OffsetDateTime) {
+            dateTime = ((OffsetDateTime) value).toLocalDateTime();
+        } else if (value instanceof LocalDate) {
+            dateTime = ((LocalDate) value).atStartOfDay();
+        } else if (value instanceof java.sql.Date) {
+            dateTime = ((java.sql.Date) value).toLocalDate().atStartOfDay();
+        } else {
+            dateTime = LocalDateTime.parse(value.toString().trim().replace(' ', 'T'));
+        }
+        return cache(index, dateTime);
+    }
+
+    private LocalDate getLocalDate0(int index) {
+        Object value = values[index];
+        if (value == null || value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof java.sql.Date) {
+            Object cached = cached(index);
+            if (cached instanceof LocalDate) {
+                return (LocalDate) cached;
+            }
+            return cache(index, ((java.sql.Date) value).toLocalDate());
+        }
+        return getLocalDateTime0(index).toLocalDate();
+    }
+
+    private Object cached(int index) {
+        return converted == null ? null : converted[index];
+    }
+
+    private <V> V cache(int index, V value) {
+        if (converted == null) {
+            converted = new Object[values.length];
+        }
+        converted[index] = value;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Row{");
+        List<String> labels = metadata.getColumnLabels();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(labels.get(i)).append('=').append(values[i]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column labels of a result, shared by all {@link Row}s read from it so that label lookups are resolved once
+ * per result instead of once per row. Labels are matched case-insensitively; when two columns share a label,
+ * the first one wins, as with {@link java.sql.ResultSet#findColumn(String)}.
+ */
+public final class RowMetadata {
+    private final String[] labels;
+    private final Map<String, Integer> indexes;
+
+    private RowMetadata(String[] labels) {
+        this.labels = labels;
+        this.indexes = new HashMap<>(labels.length * 2);
+        for (int i = labels.length - 1; i >= 0; i--) {
+            indexes.put(labels[i].toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    /**
+     * Reads the column labels of a result.
+     *
+     * @param metaData The metadata of the result.
+     * @return The shared metadata.
+     * @throws SQLException If the metadata cannot be read.
+     */
+    public static RowMetadata of(ResultSetMetaData metaData) throws SQLException {
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        return new RowMetadata(labels);
+    }
+
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    public List<String> getColumnLabels() {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    /**
+     * Returns the zero-based index of the column with the given label.
+     *
+     * @param label The column label, in any case.
+     * @return The zero-based column index.
+     * @throws IllegalArgumentException If the result has no such column.
+     */
+    public int indexOf(String label) {
+        Integer index = indexes.get(label);
+        if (index == null) {
+            index = indexes.get(label.toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new IllegalArgumentException("No column labelled '" + label + "' in " + Arrays.toString(labels) + ".");
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Estimates the in-memory size of the current row of a ResultSet.
+ * Fixed-width columns are sized from their type alone; character and binary columns are read to measure their
+ * actual length. Large object columns are never read, because some drivers stream them; their declared display
+ * size is used instead.
+ */
+class RowSizeEstimator {
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 8;
+    private static final int MAX_LOB_ESTIMATE = 64 * 1024;
+
+    private final int[] variableColumns;
+    private final boolean[] binaryColumns;
+    private final long fixedRowSize;
+
+    RowSizeEstimator(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        int[] variable = new int[columnCount];
+        boolean[] binary = new boolean[columnCount];
+        int variableCount = 0;
+        long fixed = OBJECT_OVERHEAD;
+        for (int i = 1; i <= columnCount; i++) {
+            int size = fixedSize(metaData, i);
+            if (size < 0) {
+                int type = metaData.getColumnType(i);
+                binary[variableCount] = type == Types.BINARY || type == Types.VARBINARY;
+                variable[variableCount++] = i;
+                size = REFERENCE_SIZE;
+            }
+            fixed += size;
+        }
+        variableColumns = new int[variableCount];
+        binaryColumns = new boolean[variableCount];
+        System.arraycopy(variable, 0, variableColumns, 0, variableCount);
+        System.arraycopy(binary, 0, binaryColumns, 0, variableCount);
+        fixedRowSize = fixed;
+    }
+
+    long estimate(ResultSet resultSet) throws SQLException {
+        long size = fixedRowSize;
+        for (int i = 0; i < variableColumns.length; i++) {
+            if (binaryColumns[i]) {
+                byte[] value = resultSet.getBytes(variableColumns[i]);
+                if (value != null) {
+                    size += OBJECT_OVERHEAD + value.length;
+                }
+            } else {
+                String value = resultSet.getString(variableColumns[i]);
+                if (value != null) {
+                    size += 2 * OBJECT_OVERHEAD + value.length() * 2L;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return The size of the column's value, or -1 if it must be measured for every row.
+     */
+    private static int fixedSize(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.REAL:
+                return OBJECT_OVERHEAD + REFERENCE_SIZE;
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return OBJECT_OVERHEAD + 2 * REFERENCE_SIZE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return 2 * OBJECT_OVERHEAD + 4 * REFERENCE_SIZE;
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return 2 * OBJECT_OVERHEAD + 2 * REFERENCE_SIZE;
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARBINARY:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return OBJECT_OVERHEAD + Math.min(MAX_LOB_ESTIMATE, Math.max(0, metaData.getColumnDisplaySize(column)));
+            default:
+                return -1;
+        }
+    }
+}
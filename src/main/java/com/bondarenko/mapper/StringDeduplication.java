@@ -0,0 +1,172 @@
+package com.bondarenko.mapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Opt-in canonicalization of repeated strings while a result is mapped, so that a list of entities holds one
+ * String instance per distinct value of a low-cardinality column (status codes, country names, enum-like values)
+ * instead of one copy per row.
+ * <p>
+ * Every result gets its own bounded dictionary per column. A column whose values turn out to be mostly distinct
+ * stops being deduplicated after a sample of {@value #BAILOUT_SAMPLE} values, and a full dictionary only keeps
+ * canonicalizing the values it already holds, so high-cardinality columns cost little and memory stays bounded.
+ * Instances are immutable and can be shared between templates.
+ */
+public final class StringDeduplication {
+    static final int BAILOUT_SAMPLE = 1024;
+    private static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final Set<String> columns;
+    private final int maxEntries;
+
+    private StringDeduplication(Set<String> columns, int maxEntries) {
+        this.columns = columns;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Deduplicates the strings of every column.
+     *
+     * @return The deduplication mode.
+     */
+    public static StringDeduplication allColumns() {
+        return new StringDeduplication(null, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Deduplicates the strings of the given columns only.
+     *
+     * @param columnLabels The labels of the columns, in any case.
+     * @return The deduplication mode.
+     */
+    public static StringDeduplication columns(String... columnLabels) {
+        if (columnLabels == null || columnLabels.length == 0) {
+            throw new IllegalArgumentException("At least one column label is required.");
+        }
+        Set<String> columns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(columns, columnLabels);
+        return new StringDeduplication(Collections.unmodifiableSet(columns), DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Returns a copy of this mode with a different dictionary size.
+     *
+     * @param maxEntries The maximum number of distinct values kept per column and result. Defaults to 4096.
+     * @return The deduplication mode.
+     */
+    public StringDeduplication withMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries should be positive.");
+        }
+        return new StringDeduplication(columns, maxEntries);
+    }
+
+    /**
+     * Creates empty dictionaries for a result with the given column labels.
+     *
+     * @param columnLabels The labels of the result columns, in column order.
+     * @return The dictionaries of the result.
+     */
+    public Dictionaries newDictionaries(List<String> columnLabels) {
+        StringDictionary[] dictionaries = new StringDictionary[columnLabels.size()];
+        for (int i = 0; i < dictionaries.length; i++) {
+            if (columns == null || columns.contains(columnLabels.get(i))) {
+                dictionaries[i] = new StringDictionary(maxEntries);
+            }
+        }
+        return new Dictionaries(dictionaries);
+    }
+
+    /**
+     * Wraps a ResultSet so that its {@code getString}, {@code getNString} and {@code getObject} methods return
+     * canonical instances of string values. All other methods are passed through unchanged.
+     *
+     * @param resultSet The ResultSet to wrap.
+     * @return The deduplicating ResultSet.
+     * @throws SQLException If the metadata of the ResultSet cannot be read.
+     */
+    public ResultSet wrap(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        List<String> labels = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            labels.add(metaData.getColumnLabel(i));
+        }
+        Dictionaries dictionaries = newDictionaries(labels);
+        return new DeduplicatingResultSet(resultSet, dictionaries);
+    }
+
+    /**
+     * The per-column dictionaries of one result.
+     */
+    public static final class Dictionaries {
+        private final StringDictionary[] dictionaries;
+
+        private Dictionaries(StringDictionary[] dictionaries) {
+            this.dictionaries = dictionaries;
+        }
+
+        /**
+         * Returns the canonical instance of a value of the given column.
+         *
+         * @param columnIndex The one-based column index.
+         * @param value       The value read from the column.
+         * @return The canonical instance, or the value itself if the column is not deduplicated.
+         */
+        public String canonicalize(int columnIndex, String value) {
+            StringDictionary dictionary = dictionaries[columnIndex - 1];
+            return dictionary == null || value == null ? value : dictionary.canonicalize(value);
+        }
+    }
+
+    /**
+     * Bounded dictionary of one column, with bailout once the column proves to be high-cardinality.
+     */
+    static final class StringDictionary {
+        private final int maxEntries;
+        private Map<String, String> entries = new HashMap<>();
+        private int lookups;
+        private int hits;
+
+        StringDictionary(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        String canonicalize(String value) {
+            if (entries == null) {
+                return value;
+            }
+            lookups++;
+            String canonical = entries.get(value);
+            if (canonical != null) {
+                hits++;
+                return canonical;
+            }
+            if (entries.size() < maxEntries) {
+                entries.put(value, value);
+            }
+            if (lookups % BAILOUT_SAMPLE == 0 && hits * 2 < lookups) {
+                entries = null;
+            }
+            return value;
+        }
+
+        boolean isDisabled() {
+            return entries == null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StringDeduplication{columns=" + (columns == null ? "all" : columns)
+                + ", maxEntries=" + maxEntries + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package com.bondarenko.mapper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the column name of a field of a {@link JdbcEntity}.
+ * Without it, the column name is the field name converted to snake case.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Column {
+    String value();
+}
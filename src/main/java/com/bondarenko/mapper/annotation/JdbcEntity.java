@@ -0,0 +1,17 @@
+package com.bondarenko.mapper.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a top-level class for which the jdbc-template-processor generates a {@code <Class>RowMapper} and a
+ * {@code <Class>ParameterExtractor} at compile time.
+ * The class needs an accessible no-argument constructor. Every non-static, non-final, non-transient field becomes a column,
+ * accessed through its setter and getter when present, or directly otherwise.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JdbcEntity {
+}
@@ -0,0 +1,24 @@
+package com.bondarenko.template;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Work done on the connection of one template call, see
+ * {@link JdbcTemplate#executeInConnection(com.bondarenko.template.jfr.OperationTrace, String, ConnectionCallback)}.
+ *
+ * @param <R> The type of the result.
+ */
+@FunctionalInterface
+public interface ConnectionCallback<R> {
+
+    /**
+     * Runs the work. Statements should be created through the scope, so the time budget of the call applies to them.
+     *
+     * @param scope The connection of the call and the factory for its statements.
+     * @return The result of the call.
+     * @throws SQLException If a database operation fails; it is translated by the template.
+     * @throws IOException  If writing or reading outside the database fails.
+     */
+    R doInConnection(ConnectionScope scope) throws SQLException, IOException;
+}
@@ -0,0 +1,100 @@
+package com.bondarenko.template;
+
+import com.bondarenko.exception.QueryTimeoutException;
+import com.bondarenko.template.jfr.OperationTrace;
+import com.bondarenko.template.timeout.Deadline;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The connection of one template call together with its time budget. Statements created through the scope get the
+ * remaining time of the call as their query timeout and are cancelled when the deadline of the call passes, so a
+ * call running several statements shares one budget like a single-statement call does.
+ */
+public final class ConnectionScope {
+    private final Connection connection;
+    private final OperationTrace trace;
+    private final Deadline deadline;
+    private final Duration queryTimeout;
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    ConnectionScope(Connection connection, OperationTrace trace, Deadline deadline, Duration queryTimeout) {
+        this.connection = connection;
+        this.trace = trace;
+        this.deadline = deadline;
+        this.queryTimeout = queryTimeout;
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public OperationTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Prepares a statement bound to the time budget of the call.
+     *
+     * @param sql The SQL of the statement.
+     * @return The prepared statement, to be closed by the caller.
+     * @throws SQLException          If the statement cannot be prepared.
+     * @throws QueryTimeoutException If the time budget of the call is already used up.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return register(connection.prepareStatement(sql));
+    }
+
+    /**
+     * Creates a statement bound to the time budget of the call.
+     *
+     * @return The statement, to be closed by the caller.
+     * @throws SQLException          If the statement cannot be created.
+     * @throws QueryTimeoutException If the time budget of the call is already used up.
+     */
+    public Statement createStatement() throws SQLException {
+        return register(connection.createStatement());
+    }
+
+    private <S extends Statement> S register(S statement) throws SQLException {
+        if (deadline == null) {
+            return statement;
+        }
+        if (deadline.isExpired()) {
+            statement.close();
+            throw new QueryTimeoutException("Query timeout of " + queryTimeout + " expired before the statement started");
+        }
+        statement.setQueryTimeout(deadline.remainingSecondsRoundedUp());
+        statements.add(statement);
+        // The deadline may have passed between the check and the registration
+        if (cancelled) {
+            cancel(statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Cancels every statement created through this scope, called by the timer when the deadline passes.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            cancel(statement);
+        }
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // The statement has completed or its connection is gone, so there is nothing left to cancel
+        }
+    }
+}
@@ -1,24 +1,71 @@
 package com.bondarenko.template;
 
 import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.QueryTimeoutException;
+import com.bondarenko.exception.SqlExceptionTranslator;
+import com.bondarenko.exception.TransientConnectionException;
+import com.bondarenko.mapper.FetchSizePolicy;
+import com.bondarenko.mapper.BoundedResultList;
+import com.bondarenko.mapper.MemoryBudget;
+import com.bondarenko.mapper.ResultSetExtractor;
 import com.bondarenko.mapper.ResultSetMapper;
+import com.bondarenko.mapper.Row;
 import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.mapper.RowMetadata;
+import com.bondarenko.mapper.StringDeduplication;
+import com.bondarenko.template.bulk.BulkUpserter;
+import com.bondarenko.template.bulk.UpsertResult;
+import com.bondarenko.template.export.ExportFormat;
+import com.bondarenko.template.export.ResultSetExporter;
+import com.bondarenko.template.jfr.OperationTrace;
+import com.bondarenko.template.limit.ConcurrencyLimiter;
+import com.bondarenko.template.lob.LobTransfer;
+import com.bondarenko.template.lob.SqlLob;
+import com.bondarenko.template.timeout.Deadline;
+import com.bondarenko.template.timeout.HashedWheelTimer;
 import com.bondarenko.template.validation.ValidationUtils;
+import com.bondarenko.template.warmup.StatementRegistry;
+import com.bondarenko.template.warmup.StatementWarmer;
+import com.bondarenko.template.warmup.WarmupReport;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The JdbcTemplate class provides a simple way to execute SQL queries and updates using JDBC.
  * It encapsulates common JDBC operations and handles exceptions by throwing a DataAccessException.
  */
 public class JdbcTemplate {
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(Duration.ofMillis(10), 512, "jdbc-template-timeout");
+
     private final DataSource dataSource;
     private final ResultSetMapper resultSetMapper = new ResultSetMapper();
+    private static final int MULTI_STATEMENT_REJECTIONS_TO_DISABLE = 3;
+
+    private final AtomicInteger multiStatementRejections = new AtomicInteger();
+    private volatile boolean multiStatementEnabled = true;
+    private FetchSizePolicy fetchSizePolicy;
+    private MemoryBudget memoryBudget;
+    private int maxRows;
+    private Duration queryTimeout;
+    private StringDeduplication stringDeduplication;
+    private SqlExceptionTranslator exceptionTranslator = new SqlExceptionTranslator();
+    private ConcurrencyLimiter concurrencyLimiter;
 
     /**
      * Constructs a new JdbcTemplate instance with the given DataSource.
@@ -29,25 +76,257 @@ public class JdbcTemplate {
         this.dataSource = dataSource;
     }
 
+    private JdbcTemplate(JdbcTemplate template) {
+        this.dataSource = template.dataSource;
+        this.multiStatementEnabled = template.multiStatementEnabled;
+        this.fetchSizePolicy = template.fetchSizePolicy;
+        this.memoryBudget = template.memoryBudget;
+        this.maxRows = template.maxRows;
+        this.queryTimeout = template.queryTimeout;
+        this.stringDeduplication = template.stringDeduplication;
+        this.exceptionTranslator = template.exceptionTranslator;
+        this.concurrencyLimiter = template.concurrencyLimiter;
+    }
+
+    /**
+     * Returns the DataSource used by this template.
+     *
+     * @return The DataSource used for database connections.
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Sets the policy used to choose and adapt the fetch size of queries.
+     * Without a policy the driver's default fetch size is used.
+     *
+     * @param fetchSizePolicy The fetch size policy, or null to use the driver default.
+     */
+    public void setFetchSizePolicy(FetchSizePolicy fetchSizePolicy) {
+        this.fetchSizePolicy = fetchSizePolicy;
+    }
+
+    /**
+     * Sets the memory budget applied to every list returned by {@code query}. A query exceeding it fails with a
+     * {@link com.bondarenko.exception.ResultTooLargeException}. A truncating budget is rejected, because callers of
+     * methods returning a plain list could not tell that rows are missing; pass it to
+     * {@link #query(String, MemoryBudget, RowMapper, Object...)} instead.
+     *
+     * @param memoryBudget The memory budget, or null for no limit.
+     * @throws IllegalArgumentException If the budget truncates instead of failing.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        ValidationUtils.validateFailingMemoryBudget(memoryBudget);
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Sets the maximum number of rows any query may return. Further rows are silently dropped by the driver.
+     *
+     * @param maxRows The row limit, or 0 for no limit.
+     */
+    public void setMaxRows(int maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows should not be negative.");
+        }
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Sets the string deduplication applied while mapping the results of {@code query} and {@code queryForRows}.
+     * Off by default.
+     *
+     * @param stringDeduplication The deduplication mode, or null to keep every string as read.
+     */
+    public void setStringDeduplication(StringDeduplication stringDeduplication) {
+        this.stringDeduplication = stringDeduplication;
+    }
+
+    /**
+     * Returns a template that shares the DataSource and settings of this one but deduplicates strings as described
+     * in {@link #setStringDeduplication(StringDeduplication)}, for the queries that return low-cardinality columns.
+     *
+     * @param stringDeduplication The deduplication mode.
+     * @return The deduplicating template.
+     */
+    public JdbcTemplate withStringDeduplication(StringDeduplication stringDeduplication) {
+        ValidationUtils.validateNotNull(stringDeduplication, "String deduplication");
+        JdbcTemplate template = new JdbcTemplate(this);
+        template.stringDeduplication = stringDeduplication;
+        return template;
+    }
+
+    /**
+     * Sets the translator that turns driver exceptions into the DataAccessException hierarchy, for example one
+     * that throws stackless duplicate-key exceptions.
+     *
+     * @param exceptionTranslator The exception translator.
+     */
+    public void setExceptionTranslator(SqlExceptionTranslator exceptionTranslator) {
+        ValidationUtils.validateNotNull(exceptionTranslator, "Exception translator");
+        this.exceptionTranslator = exceptionTranslator;
+    }
+
+    public SqlExceptionTranslator getExceptionTranslator() {
+        return exceptionTranslator;
+    }
+
+    /**
+     * Sets the limiter that caps the number of calls in flight and adapts the cap to the observed latency.
+     * Calls over the limit fail immediately with a {@link com.bondarenko.exception.LimitExceededException}.
+     * Templates derived with the {@code with*} methods share the limiter of this template.
+     *
+     * @param concurrencyLimiter The concurrency limiter, or null for no limit.
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Sets the default time budget of every call made through this template, covering connection acquisition,
+     * statement execution and result mapping. A call exceeding it is cancelled and fails with a
+     * {@link QueryTimeoutException}. Connection acquisition itself cannot be interrupted, so the pool's own
+     * acquisition timeout should not be longer than this budget.
+     *
+     * @param queryTimeout The time budget per call, or null for no limit.
+     */
+    public void setQueryTimeout(Duration queryTimeout) {
+        if (queryTimeout != null && (queryTimeout.isNegative() || queryTimeout.isZero())) {
+            throw new IllegalArgumentException("queryTimeout should be positive.");
+        }
+        this.queryTimeout = queryTimeout;
+    }
+
+    /**
+     * Returns a template that shares the DataSource and settings of this one but applies the given time budget
+     * to every call, as described in {@link #setQueryTimeout(Duration)}.
+     *
+     * @param timeout The time budget per call.
+     * @return The deadline-aware template.
+     */
+    public JdbcTemplate withTimeout(Duration timeout) {
+        ValidationUtils.validateNotNull(timeout, "Timeout");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout should be positive.");
+        }
+        JdbcTemplate template = new JdbcTemplate(this);
+        template.queryTimeout = timeout;
+        return template;
+    }
+
+    /**
+     * Returns a template that shares the DataSource and settings of this one but limits every query to the given
+     * number of rows, as described in {@link #setMaxRows(int)}.
+     *
+     * @param maxRows The row limit, or 0 for no limit.
+     * @return The row-limited template.
+     */
+    public JdbcTemplate withMaxRows(int maxRows) {
+        JdbcTemplate template = new JdbcTemplate(this);
+        template.setMaxRows(maxRows);
+        return template;
+    }
+
     /**
      * Executes a SQL query and maps the result set to a list of objects using the provided RowMapper.
      *
      * @param sql       The SQL query to execute.
      * @param rowMapper The RowMapper to use for mapping each result row to a Java object.
+     * @param params    The parameters to be bound to the query.
      * @param <T>       The type of objects to be returned.
      * @return A list of Java objects resulting from the query execution.
      * @throws DataAccessException If there is an error during the database operation.
      */
-    public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql);
-             ResultSet resultSet = preparedStatement.executeQuery()) {
+    public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... params) {
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateParamArray(params);
+        return queryWithinBudget(sql, memoryBudget, rowMapper, params);
+    }
+
+    /**
+     * Executes a SQL query and maps the result set to a list of objects, collecting no more rows than fit into the
+     * given memory budget instead of the budget of this template. With a truncating budget the returned list tells
+     * whether rows were dropped.
+     *
+     * @param sql          The SQL query to execute.
+     * @param memoryBudget The memory budget of this query.
+     * @param rowMapper    The RowMapper to use for mapping each result row to a Java object.
+     * @param params       The parameters to be bound to the query.
+     * @param <T>          The type of objects to be returned.
+     * @return The rows that fit into the budget, see {@link BoundedResultList#isTruncated()}.
+     * @throws DataAccessException If there is an error during the database operation, or the result exceeds a
+     *                             failing budget.
+     */
+    public <T> BoundedResultList<T> query(String sql, MemoryBudget memoryBudget, RowMapper<T> rowMapper, Object... params) {
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(memoryBudget, "Memory budget");
+        ValidationUtils.validateParamArray(params);
+        return queryWithinBudget(sql, memoryBudget, rowMapper, params);
+    }
 
-            return resultSetMapper.mapResultSetToList(resultSet, rowMapper);
+    private <T> BoundedResultList<T> queryWithinBudget(String sql, MemoryBudget memoryBudget, RowMapper<T> rowMapper,
+                                                       Object... params) {
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                ResultSet mappedResultSet = stringDeduplication == null ? resultSet : stringDeduplication.wrap(resultSet);
+                BoundedResultList<T> rows = new ResultSetMapper<T>()
+                        .mapResultSetToList(mappedResultSet, rowMapper, fetchSizePolicy, memoryBudget);
+                trace.completed(rows.size());
+                return rows;
+            }
+        });
+    }
 
-        } catch (SQLException e) {
-            throw new DataAccessException(e);
-        }
+    /**
+     * Executes a SQL query and processes the whole result set with the provided ResultSetExtractor, for example to
+     * fold a JOIN into parent objects with their children with a {@link com.bondarenko.mapper.OneToManyExtractor}.
+     *
+     * @param sql       The SQL query to execute.
+     * @param extractor The ResultSetExtractor to use for processing the result set.
+     * @param params    The parameters to be bound to the query.
+     * @param <T>       The type of the result.
+     * @return The result of the extractor.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public <T> T extract(String sql, ResultSetExtractor<T> extractor, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(extractor, "ResultSetExtractor");
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                T result = extractor.extract(stringDeduplication == null ? resultSet : stringDeduplication.wrap(resultSet));
+                trace.completed(-1);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Executes a SQL query and returns its rows as lazily converted {@link Row}s, for callers that read only a few
+     * of the selected columns. Column values are converted to the requested type on first access only.
+     *
+     * @param sql    The SQL query to execute.
+     * @param params The parameters to be bound to the query.
+     * @return The rows resulting from the query execution.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public List<Row> queryForRows(String sql, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                RowMetadata metadata = RowMetadata.of(resultSet.getMetaData());
+                StringDeduplication.Dictionaries dictionaries = stringDeduplication == null
+                        ? null : stringDeduplication.newDictionaries(metadata.getColumnLabels());
+                RowMapper<Row> rowMapper = row -> Row.capture(row, metadata, dictionaries);
+                List<Row> rows = resultSetMapper.mapResultSetToList(resultSet, rowMapper, fetchSizePolicy, memoryBudget);
+                trace.completed(rows.size());
+                return rows;
+            }
+        });
     }
 
     /**
@@ -64,21 +343,18 @@ public class JdbcTemplate {
         ValidationUtils.validateRowMapper(rowMapper);
         ValidationUtils.validateSql(sql);
         ValidationUtils.validateParamArray(params);
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql);
-             ResultSet resultSet = executeQueryWithParameters(statement, params)) {
-
-            if (resultSet.next()) {
-                return rowMapper.map(resultSet);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                T result = resultSet.next() ? rowMapper.map(resultSet) : null;
+                trace.completed(result == null ? 0 : 1);
+                return result;
             }
-            return null;
-        } catch (SQLException e) {
-            throw new DataAccessException(e);
-        }
+        });
     }
 
     /**
-     * Executes a SQL update statement with the provided parameters.
+     * Executes a SQL update statement with the provided parameters. A {@link SqlLob} parameter is streamed to the
+     * database instead of being bound as one value.
      *
      * @param sql    The SQL update statement to execute.
      * @param params The parameters to be bound to the update statement.
@@ -88,22 +364,326 @@ public class JdbcTemplate {
     public int update(String sql, Object... params) {
         ValidationUtils.validateSql(sql);
         ValidationUtils.validateParamArray(params);
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-
+        return execute(OperationTrace.update(sql, params.length), sql, (statement, trace) -> {
             for (int i = 0; i < params.length; i++) {
-                statement.setObject(i + 1, params[i]);
+                SqlLob.setParameter(statement, i + 1, params[i]);
+            }
+            int updatedRows = statement.executeUpdate();
+            trace.executed();
+            trace.completed(updatedRows);
+            return updatedRows;
+        });
+    }
+
+    /**
+     * Executes a SQL query and streams every result row to the given channel in the requested format.
+     * Cells are encoded directly from the ResultSet without creating entities, so memory use does not grow
+     * with the size of the result.
+     *
+     * @param sql     The SQL query to execute.
+     * @param format  The output format.
+     * @param channel The channel to write the rows to. It is not closed by this method.
+     * @param params  The parameters to be bound to the query.
+     * @return The number of exported rows.
+     * @throws DataAccessException If there is an error during the database operation or while writing to the channel.
+     */
+    public long export(String sql, ExportFormat format, WritableByteChannel channel, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(format, "Export format");
+        ValidationUtils.validateNotNull(channel, "Channel");
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                long exportedRows = new ResultSetExporter(format, channel).export(resultSet);
+                trace.completed(exportedRows);
+                return exportedRows;
+            }
+        });
+    }
+
+    /**
+     * Executes a SQL query and streams the binary column of its first row to the given channel. The content is copied
+     * through a small reusable buffer, so the object is never held on the heap as a whole.
+     *
+     * @param sql     The SQL query selecting the BLOB as its first column.
+     * @param channel The channel to write the content to. It is not closed by this method.
+     * @param params  The parameters to be bound to the query.
+     * @return The number of copied bytes, or -1 if the query returned no row or the column is NULL.
+     * @throws DataAccessException If there is an error during the database operation or while writing to the channel.
+     */
+    public long readBlob(String sql, WritableByteChannel channel, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(channel, "Channel");
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                InputStream content = resultSet.next() ? resultSet.getBinaryStream(1) : null;
+                if (content == null) {
+                    trace.completed(0);
+                    return -1L;
+                }
+                try (content) {
+                    long bytes = LobTransfer.copy(content, channel);
+                    trace.completed(1);
+                    return bytes;
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes a SQL query and streams the binary column of its first row into the given file, as described in
+     * {@link #readBlob(String, WritableByteChannel, Object...)}. The file is created or truncated only when there
+     * is content to write.
+     *
+     * @param sql    The SQL query selecting the BLOB as its first column.
+     * @param file   The file to write the content to.
+     * @param params The parameters to be bound to the query.
+     * @return The number of copied bytes, or -1 if the query returned no row or the column is NULL.
+     * @throws DataAccessException If there is an error during the database operation or while writing the file.
+     */
+    public long readBlob(String sql, Path file, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(file, "File");
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                InputStream content = resultSet.next() ? resultSet.getBinaryStream(1) : null;
+                if (content == null) {
+                    trace.completed(0);
+                    return -1L;
+                }
+                try (content; FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    long bytes = LobTransfer.copy(content, channel);
+                    trace.completed(1);
+                    return bytes;
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes a SQL query and streams the character column of its first row to the given writer through a small
+     * reusable buffer.
+     *
+     * @param sql    The SQL query selecting the CLOB as its first column.
+     * @param writer The writer to write the content to. It is flushed but not closed by this method.
+     * @param params The parameters to be bound to the query.
+     * @return The number of copied characters, or -1 if the query returned no row or the column is NULL.
+     * @throws DataAccessException If there is an error during the database operation or while writing.
+     */
+    public long readClob(String sql, Writer writer, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(writer, "Writer");
+        ValidationUtils.validateParamArray(params);
+        return execute(OperationTrace.query(sql, params.length), sql, (statement, trace) -> {
+            try (ResultSet resultSet = executeQueryWithParameters(statement, trace, params)) {
+                Reader content = resultSet.next() ? resultSet.getCharacterStream(1) : null;
+                if (content == null) {
+                    trace.completed(0);
+                    return -1L;
+                }
+                try (content) {
+                    long characters = LobTransfer.copy(content, writer);
+                    trace.completed(1);
+                    return characters;
+                }
+            }
+        });
+    }
+
+    /**
+     * Inserts the rows whose keys are not in the table yet and updates the others, with one set-based merge from a
+     * temporary staging table instead of one statement per row, as described in {@link BulkUpserter}.
+     *
+     * @param table      The target table.
+     * @param keyColumns The columns identifying a row; each must also be one of {@code columns}.
+     * @param columns    The columns written by the upsert, in the order of the row values.
+     * @param rows       The rows, each holding one value per column.
+     * @return The numbers of inserted and updated rows.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public UpsertResult bulkUpsert(String table, List<String> keyColumns, List<String> columns, Iterable<Object[]> rows) {
+        return new BulkUpserter(this).upsert(table, keyColumns, columns, rows);
+    }
+
+    /**
+     * Starts a batch of independent queries that are executed together on one connection,
+     * in a single round trip where the driver supports multiple result sets.
+     *
+     * @return A new, empty MultiQuery bound to this template.
+     */
+    public MultiQuery multiQuery() {
+        return new MultiQuery(this);
+    }
+
+    /**
+     * Prepares every registered statement on the given number of connections and optionally executes it with its
+     * sample parameters, as described in {@link StatementWarmer}.
+     *
+     * @param registry            The statements the application is going to run.
+     * @param connections         The number of connections to warm, normally the size of the connection pool.
+     * @param syntheticExecutions How many times each statement with sample parameters is executed per connection.
+     * @param timeLimit           The maximum duration of the whole warmup.
+     * @return The summary of the warmup.
+     */
+    public WarmupReport warmup(StatementRegistry registry, int connections, int syntheticExecutions, Duration timeLimit) {
+        StatementWarmer warmer = new StatementWarmer(dataSource);
+        warmer.setConnections(connections);
+        warmer.setSyntheticExecutions(syntheticExecutions);
+        warmer.setTimeLimit(timeLimit);
+        return warmer.warmup(registry);
+    }
+
+    boolean isMultiStatementEnabled() {
+        return multiStatementEnabled;
+    }
+
+    /**
+     * Called when the database rejected a combined multi-statement execution. After three rejections in a row,
+     * later MultiQueries go straight to sequential execution, so a single failing batch does not turn combining
+     * off for good.
+     */
+    void multiStatementRejected() {
+        if (multiStatementRejections.incrementAndGet() >= MULTI_STATEMENT_REJECTIONS_TO_DISABLE) {
+            multiStatementEnabled = false;
+        }
+    }
+
+    /**
+     * Called when a combined multi-statement execution succeeded, which resets the count of rejections.
+     */
+    void multiStatementAccepted() {
+        multiStatementRejections.set(0);
+    }
+
+    /**
+     * Runs work that needs the connection of a call, such as several statements or a batch, with everything a
+     * single-statement call gets: a permit of the concurrency limiter, the time budget of
+     * {@link #setQueryTimeout(Duration)}, which statements created through the {@link ConnectionScope} share,
+     * exception translation and the Flight Recorder trace. The connection is closed when the callback returns.
+     *
+     * @param trace    The trace of the call, from {@link OperationTrace#query(String, int)} or
+     *                 {@link OperationTrace#update(String, int)}.
+     * @param sql      The SQL identifying the call, used to pick the partition of the concurrency limiter.
+     * @param callback The work to run on the connection.
+     * @param <R>      The type of the result.
+     * @return The result of the callback.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public <R> R executeInConnection(OperationTrace trace, String sql, ConnectionCallback<R> callback) {
+        ValidationUtils.validateNotNull(trace, "Trace");
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateNotNull(callback, "Connection callback");
+        if (concurrencyLimiter == null) {
+            return executeWithDeadline(trace, callback);
+        }
+        ConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire(sql);
+        try {
+            R result = executeWithDeadline(trace, callback);
+            permit.onSuccess();
+            return result;
+        } catch (QueryTimeoutException | TransientConnectionException e) {
+            permit.onDropped();
+            throw e;
+        } catch (RuntimeException | Error e) {
+            permit.onIgnore();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the callback against a freshly prepared statement of the given SQL, see
+     * {@link #executeInConnection(OperationTrace, String, ConnectionCallback)}.
+     */
+    private <R> R execute(OperationTrace trace, String sql, StatementCallback<R> callback) {
+        return executeInConnection(trace, sql, scope -> {
+            try (PreparedStatement statement = applyQuerySettings(scope.prepareStatement(sql))) {
+                trace.prepared();
+                return callback.doInStatement(statement, trace);
+            }
+        });
+    }
+
+    /**
+     * Runs the callback on a new connection, translating driver exceptions with the exception translator. When a
+     * query timeout is configured, the whole call from connection acquisition to the end of mapping shares one
+     * deadline: every statement of the scope gets the remaining time as its query timeout, and the shared timer
+     * cancels them exactly when the deadline passes. The phases of the call are reported to the trace, which emits
+     * them as Flight Recorder events when a recording enables them.
+     */
+    private <R> R executeWithDeadline(OperationTrace trace, ConnectionCallback<R> callback) {
+        Deadline deadline = queryTimeout == null ? null : Deadline.after(queryTimeout);
+        HashedWheelTimer.Timeout cancellation = null;
+        try (Connection connection = trace.acquireConnection(dataSource)) {
+            if (deadline != null && deadline.isExpired()) {
+                throw new QueryTimeoutException("Query timeout of " + queryTimeout + " expired while acquiring a connection");
+            }
+            ConnectionScope scope = new ConnectionScope(connection, trace, deadline, queryTimeout);
+            if (deadline != null) {
+                cancellation = TIMER.schedule(scope::cancel, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            }
+            return callback.doInConnection(scope);
+        } catch (SQLException | IOException e) {
+            if (cancellation != null && cancellation.isExpired()) {
+                throw new QueryTimeoutException(e);
+            }
+            if (e instanceof SQLException) {
+                throw exceptionTranslator.translate((SQLException) e);
             }
-            return statement.executeUpdate();
-        } catch (SQLException e) {
             throw new DataAccessException(e);
+        } catch (DataAccessException e) {
+            // Mappers and extractors may wrap the driver's exception; the cancellation still explains it
+            if (cancellation != null && cancellation.isExpired() && !(e instanceof QueryTimeoutException)) {
+                throw new QueryTimeoutException(e);
+            }
+            if (e.getClass() == DataAccessException.class && e.getCause() instanceof SQLException) {
+                throw exceptionTranslator.translate((SQLException) e.getCause());
+            }
+            throw e;
+        } finally {
+            if (cancellation != null) {
+                cancellation.cancel();
+            }
+            trace.end();
         }
     }
 
-    private ResultSet executeQueryWithParameters(PreparedStatement statement, Object... params) throws SQLException {
+    private ResultSet executeQueryWithParameters(PreparedStatement statement, OperationTrace trace, Object... params)
+            throws SQLException {
         for (int i = 0; i < params.length; i++) {
-            statement.setObject(i + 1, params[i]);
+            SqlLob.setParameter(statement, i + 1, params[i]);
         }
-        return statement.executeQuery();
+        ResultSet resultSet = statement.executeQuery();
+        trace.executed();
+        return resultSet;
+    }
+
+    /**
+     * Maps the rows of a result like {@link #query(String, RowMapper, Object...)} does, applying the string
+     * deduplication, fetch size policy and memory budget of this template.
+     */
+    <T> List<T> mapRows(ResultSet resultSet, RowMapper<T> rowMapper) throws SQLException {
+        ResultSet mappedResultSet = stringDeduplication == null ? resultSet : stringDeduplication.wrap(resultSet);
+        return new ResultSetMapper<T>().mapResultSetToList(mappedResultSet, rowMapper, fetchSizePolicy, memoryBudget);
+    }
+
+    /**
+     * Applies the fetch size policy and the row limit of this template to a statement that returns rows.
+     */
+    PreparedStatement applyQuerySettings(PreparedStatement statement) throws SQLException {
+        if (fetchSizePolicy != null) {
+            statement.setFetchSize(fetchSizePolicy.getInitialFetchSize());
+        }
+        if (maxRows > 0) {
+            statement.setMaxRows(maxRows);
+        }
+        return statement;
+    }
+
+    @FunctionalInterface
+    private interface StatementCallback<R> {
+        R doInStatement(PreparedStatement statement, OperationTrace trace) throws SQLException, IOException;
     }
 }
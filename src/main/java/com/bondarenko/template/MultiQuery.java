@@ -0,0 +1,236 @@
+package com.bondarenko.template;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.jfr.OperationTrace;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects several independent queries and executes them together on one connection.
+ * When the driver reports support for multiple result sets, the queries are sent as a single multi-statement
+ * execution and the results are read with {@link PreparedStatement#getMoreResults()}, so all of them cost one
+ * round trip. Otherwise the queries run one after another on the same connection. When the database rejects the
+ * combined statement as unsupported or as a syntax error, the queries are re-run sequentially, and after repeated
+ * rejections the template stops combining statements; any other failure, such as a missing table, a deadlock or a
+ * lost connection, is thrown.
+ * <p>
+ * The batch is one call of the template: it holds one permit of the concurrency limiter, all its statements share the
+ * query timeout, and the fetch size policy, row limit, memory budget and string deduplication apply to every query.
+ * <p>
+ * Instances are obtained from {@link JdbcTemplate#multiQuery()} and are not thread-safe.
+ */
+public class MultiQuery {
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Entry<?>> entries = new ArrayList<>();
+
+    MultiQuery(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds a query to this batch.
+     *
+     * @param sql       The SQL query to execute. A trailing semicolon is ignored.
+     * @param rowMapper The RowMapper to use for mapping each result row to a Java object.
+     * @param params    The parameters to be bound to the query.
+     * @param <T>       The type of objects returned by the query.
+     * @return The key used to retrieve the mapped rows from the {@link Results}.
+     */
+    public <T> Key<T> add(String sql, RowMapper<T> rowMapper, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateParamArray(params);
+        Key<T> key = new Key<>(this, entries.size());
+        entries.add(new Entry<>(stripTrailingSemicolons(sql), rowMapper, params));
+        return key;
+    }
+
+    /**
+     * Executes all added queries.
+     *
+     * @return The mapped rows of every query.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public Results execute() {
+        String combinedSql = combinedSql();
+        int parameterCount = entries.stream().mapToInt(entry -> entry.params.length).sum();
+        return jdbcTemplate.executeInConnection(OperationTrace.query(combinedSql, parameterCount), combinedSql, scope -> {
+            List<List<?>> results = new ArrayList<>(entries.size());
+            if (entries.size() > 1 && jdbcTemplate.isMultiStatementEnabled()
+                    && scope.getConnection().getMetaData().supportsMultipleResultSets()) {
+                try {
+                    executeCombined(scope, combinedSql, results);
+                    jdbcTemplate.multiStatementAccepted();
+                    scope.getTrace().completed(rowCount(results));
+                    return new Results(this, results);
+                } catch (SQLException e) {
+                    if (!isMultiStatementRejected(e)) {
+                        throw e;
+                    }
+                    jdbcTemplate.multiStatementRejected();
+                    results.clear();
+                }
+            }
+            executeSequentially(scope, results);
+            scope.getTrace().completed(rowCount(results));
+            return new Results(this, results);
+        });
+    }
+
+    private String combinedSql() {
+        StringBuilder sql = new StringBuilder();
+        for (Entry<?> entry : entries) {
+            if (sql.length() > 0) {
+                sql.append(";\n");
+            }
+            sql.append(entry.sql);
+        }
+        return sql.toString();
+    }
+
+    private static long rowCount(List<List<?>> results) {
+        long rows = 0;
+        for (List<?> result : results) {
+            rows += result.size();
+        }
+        return rows;
+    }
+
+    private void executeCombined(ConnectionScope scope, String combinedSql, List<List<?>> results) throws SQLException {
+        try (PreparedStatement statement = jdbcTemplate.applyQuerySettings(scope.prepareStatement(combinedSql))) {
+            scope.getTrace().prepared();
+            int index = 1;
+            for (Entry<?> entry : entries) {
+                for (Object param : entry.params) {
+                    statement.setObject(index++, param);
+                }
+            }
+
+            boolean isResultSet = statement.execute();
+            scope.getTrace().executed();
+            for (Entry<?> entry : entries) {
+                while (!isResultSet && statement.getUpdateCount() != -1) {
+                    isResultSet = statement.getMoreResults();
+                }
+                if (!isResultSet) {
+                    throw new SQLFeatureNotSupportedException(
+                            "Expected " + entries.size() + " result sets but received " + results.size());
+                }
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    results.add(jdbcTemplate.mapRows(resultSet, entry.rowMapper));
+                }
+                isResultSet = statement.getMoreResults();
+            }
+        }
+    }
+
+    private void executeSequentially(ConnectionScope scope, List<List<?>> results) throws SQLException {
+        for (Entry<?> entry : entries) {
+            try (PreparedStatement statement = jdbcTemplate.applyQuerySettings(scope.prepareStatement(entry.sql))) {
+                for (int i = 0; i < entry.params.length; i++) {
+                    statement.setObject(i + 1, entry.params[i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    results.add(jdbcTemplate.mapRows(resultSet, entry.rowMapper));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the exception means the database does not accept several statements in one execution: the
+     * feature is reported as unsupported, the SQLState is of class 0A (feature not supported), or it is one of the
+     * generic syntax error states 42000 and 42601 that drivers return for a rejected batch. Other states of class 42,
+     * such as an unknown table or a missing privilege, are errors of the queries themselves.
+     */
+    private static boolean isMultiStatementRejected(SQLException exception) {
+        if (exception instanceof SQLFeatureNotSupportedException) {
+            return true;
+        }
+        String sqlState = exception.getSQLState();
+        return sqlState != null && (sqlState.startsWith("0A") || sqlState.equals("42000") || sqlState.equals("42601"));
+    }
+
+    private static String stripTrailingSemicolons(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';' || Character.isWhitespace(sql.charAt(end - 1)))) {
+            end--;
+        }
+        return sql.substring(0, end);
+    }
+
+    /**
+     * Typed handle to the result of one query added to a {@link MultiQuery}.
+     *
+     * @param <T> The type of objects returned by the query.
+     */
+    public static final class Key<T> {
+        private final MultiQuery owner;
+        private final int index;
+
+        private Key(MultiQuery owner, int index) {
+            this.owner = owner;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The mapped rows of every query of an executed {@link MultiQuery}.
+     */
+    public static final class Results {
+        private final MultiQuery owner;
+        private final List<List<?>> results;
+
+        private Results(MultiQuery owner, List<List<?>> results) {
+            this.owner = owner;
+            this.results = results;
+        }
+
+        /**
+         * Returns the mapped rows of the query identified by the given key.
+         *
+         * @param key The key returned when the query was added.
+         * @param <T> The type of objects returned by the query.
+         * @return The mapped rows.
+         * @throws IllegalArgumentException If the key belongs to a different MultiQuery.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> List<T> get(Key<T> key) {
+            if (key == null || key.owner != owner) {
+                throw new IllegalArgumentException("Key does not belong to this MultiQuery.");
+            }
+            return (List<T>) results.get(key.index);
+        }
+
+        /**
+         * Returns the first mapped row of the query identified by the given key.
+         *
+         * @param key The key returned when the query was added.
+         * @param <T> The type of objects returned by the query.
+         * @return The first mapped row, or null if the query returned no rows.
+         */
+        public <T> T getFirst(Key<T> key) {
+            List<T> rows = get(key);
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+    }
+
+    private static class Entry<T> {
+        private final String sql;
+        private final RowMapper<T> rowMapper;
+        private final Object[] params;
+
+        private Entry(String sql, RowMapper<T> rowMapper, Object[] params) {
+            this.sql = sql;
+            this.rowMapper = rowMapper;
+            this.params = params;
+        }
+    }
+}
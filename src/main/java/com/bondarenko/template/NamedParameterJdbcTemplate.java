@@ -1,25 +1,100 @@
 package com.bondarenko.template;
 
 import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.SqlExceptionTranslator;
+import com.bondarenko.mapper.FetchSizePolicy;
+import com.bondarenko.mapper.MemoryBudget;
 import com.bondarenko.mapper.ResultSetMapper;
 import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.mapper.StringDeduplication;
+import com.bondarenko.template.jfr.OperationTrace;
+import com.bondarenko.template.lob.SqlLob;
 import com.bondarenko.template.validation.ValidationUtils;
+import com.bondarenko.template.warmup.StatementRegistry;
+import com.bondarenko.template.warmup.StatementWarmer;
+import com.bondarenko.template.warmup.WarmupReport;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NamedParameterJdbcTemplate {
+    private static final int PARSED_SQL_CACHE_LIMIT = 256;
+
     private final DataSource dataSource;
+    private final Map<String, ParsedSql> parsedSqlCache = new ConcurrentHashMap<>();
+    private final ResultSetMapper resultSetMapper = new ResultSetMapper();
+    private FetchSizePolicy fetchSizePolicy;
+    private MemoryBudget memoryBudget;
+    private int maxRows;
+    private StringDeduplication stringDeduplication;
+    private SqlExceptionTranslator exceptionTranslator = new SqlExceptionTranslator();
 
     public NamedParameterJdbcTemplate(DataSource dataSource) {
         this.dataSource = dataSource;
     }
 
+    /**
+     * Sets the policy used to choose and adapt the fetch size of queries.
+     * Without a policy the driver's default fetch size is used.
+     *
+     * @param fetchSizePolicy The fetch size policy, or null to use the driver default.
+     */
+    public void setFetchSizePolicy(FetchSizePolicy fetchSizePolicy) {
+        this.fetchSizePolicy = fetchSizePolicy;
+    }
+
+    /**
+     * Sets the memory budget applied to every list returned by {@code query}. A query exceeding it fails with a
+     * {@link com.bondarenko.exception.ResultTooLargeException}; a truncating budget is rejected, because callers
+     * could not tell that rows are missing from the returned list.
+     *
+     * @param memoryBudget The memory budget, or null for no limit.
+     * @throws IllegalArgumentException If the budget truncates instead of failing.
+     */
+    public void setMemoryBudget(MemoryBudget memoryBudget) {
+        ValidationUtils.validateFailingMemoryBudget(memoryBudget);
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Sets the maximum number of rows any query may return. Further rows are silently dropped by the driver.
+     *
+     * @param maxRows The row limit, or 0 for no limit.
+     */
+    public void setMaxRows(int maxRows) {
+        if (maxRows < 0) {
+            throw new IllegalArgumentException("maxRows should not be negative.");
+        }
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Sets the string deduplication applied while mapping the results of {@code query}. Off by default.
+     *
+     * @param stringDeduplication The deduplication mode, or null to keep every string as read.
+     */
+    public void setStringDeduplication(StringDeduplication stringDeduplication) {
+        this.stringDeduplication = stringDeduplication;
+    }
+
+    /**
+     * Sets the translator that turns driver exceptions into the DataAccessException hierarchy, for example one
+     * that throws stackless duplicate-key exceptions.
+     *
+     * @param exceptionTranslator The exception translator.
+     */
+    public void setExceptionTranslator(SqlExceptionTranslator exceptionTranslator) {
+        ValidationUtils.validateNotNull(exceptionTranslator, "Exception translator");
+        this.exceptionTranslator = exceptionTranslator;
+    }
+
     /**
      * Executes the given SQL query to create a prepared statement with a list of arguments to bind to the query,
      * and maps a single result row to a Java object using a provided RowMapper.
@@ -34,24 +109,26 @@ public class NamedParameterJdbcTemplate {
         ValidationUtils.validateSql(sql);
         ValidationUtils.validateParamMap(paramMap);
 
-        for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
-            sql = sql.replace(":" + entry.getKey(), "?");
-        }
+        ParsedSql parsedSql = getParsedSql(sql);
+        Object[] arguments = parsedSql.buildArguments(paramMap);
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        OperationTrace trace = OperationTrace.query(sql, arguments.length);
+        try (Connection connection = trace.acquireConnection(dataSource);
+             PreparedStatement statement = connection.prepareStatement(parsedSql.getJdbcSql())) {
 
-            setParameters(paramMap, statement);
+            trace.prepared();
+            setParameters(arguments, statement);
 
             try (ResultSet resultSet = statement.executeQuery()) {
-                if (resultSet.next()) {
-                    return rowMapper.map(resultSet);
-                }
+                trace.executed();
+                T result = resultSet.next() ? rowMapper.map(resultSet) : null;
+                trace.completed(result == null ? 0 : 1);
+                return result;
             }
-
-            return null;
         } catch (SQLException e) {
-            throw new DataAccessException(e);
+            throw exceptionTranslator.translate(e);
+        } finally {
+            trace.end();
         }
     }
 
@@ -66,21 +143,23 @@ public class NamedParameterJdbcTemplate {
         ValidationUtils.validateSql(sql);
         ValidationUtils.validateParamMap(paramMap);
 
-        for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
-            sql = sql.replace(":" + entry.getKey(), "?");
-        }
+        ParsedSql parsedSql = getParsedSql(sql);
+        Object[] arguments = parsedSql.buildArguments(paramMap);
 
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        OperationTrace trace = OperationTrace.update(sql, arguments.length);
+        try (Connection connection = trace.acquireConnection(dataSource);
+             PreparedStatement statement = connection.prepareStatement(parsedSql.getJdbcSql())) {
 
-            int index = 1;
-            for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
-                statement.setObject(index, entry.getValue());
-                index++;
-            }
-            return statement.executeUpdate();
+            trace.prepared();
+            setParameters(arguments, statement);
+            int updatedRows = statement.executeUpdate();
+            trace.executed();
+            trace.completed(updatedRows);
+            return updatedRows;
         } catch (SQLException e) {
-            throw new DataAccessException(e);
+            throw exceptionTranslator.translate(e);
+        } finally {
+            trace.end();
         }
     }
 
@@ -94,27 +173,81 @@ public class NamedParameterJdbcTemplate {
     public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
         ValidationUtils.validateSql(sql);
         ValidationUtils.validateRowMapper(rowMapper);
-        ResultSetMapper resultSetMapper = new ResultSetMapper();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        OperationTrace trace = OperationTrace.query(sql, 0);
+        try (Connection connection = trace.acquireConnection(dataSource);
+             PreparedStatement statement = prepareStatement(connection, sql)) {
 
+            trace.prepared();
             ResultSet resultSet = statement.executeQuery();
-            return resultSetMapper.mapResultSetToList(resultSet, rowMapper);
+            trace.executed();
+            ResultSet mappedResultSet = stringDeduplication == null ? resultSet : stringDeduplication.wrap(resultSet);
+            List<T> rows = resultSetMapper.mapResultSetToList(mappedResultSet, rowMapper, fetchSizePolicy, memoryBudget);
+            trace.completed(rows.size());
+            return rows;
         } catch (SQLException e) {
-            throw new DataAccessException(e);
+            throw exceptionTranslator.translate(e);
+        } finally {
+            trace.end();
         }
     }
 
 
-    private static void setParameters(Map<String, ?> paramMap, PreparedStatement statement) {
-        int index = 1;
-        for (Map.Entry<String, ?> entry : paramMap.entrySet()) {
+    /**
+     * Parses and caches every registered statement, then prepares it on the given number of connections and
+     * optionally executes it with its sample parameters, as described in {@link StatementWarmer}. Registered
+     * statements stay in the parse cache even when it is full.
+     *
+     * @param registry            The statements the application is going to run.
+     * @param connections         The number of connections to warm, normally the size of the connection pool.
+     * @param syntheticExecutions How many times each statement with sample parameters is executed per connection.
+     * @param timeLimit           The maximum duration of the whole warmup.
+     * @return The summary of the warmup.
+     */
+    public WarmupReport warmup(StatementRegistry registry, int connections, int syntheticExecutions, Duration timeLimit) {
+        ValidationUtils.validateNotNull(registry, "Registry");
+        for (StatementRegistry.RegisteredStatement statement : registry.getStatements()) {
+            parsedSqlCache.computeIfAbsent(statement.getSql(), ParsedSql::parse);
+        }
+        StatementWarmer warmer = new StatementWarmer(dataSource);
+        warmer.setConnections(connections);
+        warmer.setSyntheticExecutions(syntheticExecutions);
+        warmer.setTimeLimit(timeLimit);
+        return warmer.warmup(registry);
+    }
+
+    /**
+     * Returns the parsed form of the given SQL, parsing it only on first use. Once the cache is full, SQL that is
+     * not cached yet is parsed on every call, so dynamically built SQL cannot grow the cache without bound.
+     */
+    ParsedSql getParsedSql(String sql) {
+        ParsedSql parsedSql = parsedSqlCache.get(sql);
+        if (parsedSql == null) {
+            parsedSql = ParsedSql.parse(sql);
+            if (parsedSqlCache.size() < PARSED_SQL_CACHE_LIMIT) {
+                parsedSqlCache.putIfAbsent(sql, parsedSql);
+            }
+        }
+        return parsedSql;
+    }
+
+    private static void setParameters(Object[] arguments, PreparedStatement statement) {
+        for (int i = 0; i < arguments.length; i++) {
             try {
-                statement.setObject(index, entry.getValue());
+                SqlLob.setParameter(statement, i + 1, arguments[i]);
             } catch (SQLException e) {
                 throw new DataAccessException("Error setting parameters", e);
             }
-            index++;
         }
     }
+
+    private PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (fetchSizePolicy != null) {
+            statement.setFetchSize(fetchSizePolicy.getInitialFetchSize());
+        }
+        if (maxRows > 0) {
+            statement.setMaxRows(maxRows);
+        }
+        return statement;
+    }
 }
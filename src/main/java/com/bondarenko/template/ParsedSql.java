@@ -0,0 +1,110 @@
+package com.bondarenko.template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL with named parameters, rewritten once into JDBC SQL with positional placeholders.
+ * Named parameters have the form {@code :name}. Occurrences inside string literals, quoted identifiers and
+ * comments, as well as PostgreSQL {@code ::} casts, are left untouched. A name used several times is bound at
+ * every position it appears at.
+ */
+public class ParsedSql {
+    private final String jdbcSql;
+    private final List<String> parameterNames;
+
+    private ParsedSql(String jdbcSql, List<String> parameterNames) {
+        this.jdbcSql = jdbcSql;
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * Parses the given SQL.
+     *
+     * @param sql The SQL with named parameters.
+     * @return The parsed SQL.
+     */
+    public static ParsedSql parse(String sql) {
+        StringBuilder jdbcSql = new StringBuilder(sql.length());
+        List<String> parameterNames = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                int end = skipQuoted(sql, i, c);
+                jdbcSql.append(sql, i, end);
+                i = end;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? length : end;
+                jdbcSql.append(sql, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                end = end < 0 ? length : end + 2;
+                jdbcSql.append(sql, i, end);
+                i = end;
+            } else if (c == ':' && i + 1 < length && sql.charAt(i + 1) == ':') {
+                jdbcSql.append("::");
+                i += 2;
+            } else if (c == ':' && i + 1 < length && Character.isJavaIdentifierStart(sql.charAt(i + 1))) {
+                int end = i + 2;
+                while (end < length && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                parameterNames.add(sql.substring(i + 1, end));
+                jdbcSql.append('?');
+                i = end;
+            } else {
+                jdbcSql.append(c);
+                i++;
+            }
+        }
+        return new ParsedSql(jdbcSql.toString(), Collections.unmodifiableList(parameterNames));
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    public String getJdbcSql() {
+        return jdbcSql;
+    }
+
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
+    /**
+     * Orders the values of the given map to match the positional placeholders.
+     *
+     * @param paramMap The map of named parameters and their values.
+     * @return The positional arguments.
+     * @throws IllegalArgumentException If the map has no value for one of the parameters.
+     */
+    public Object[] buildArguments(Map<String, ?> paramMap) {
+        Object[] arguments = new Object[parameterNames.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            String name = parameterNames.get(i);
+            if (!paramMap.containsKey(name)) {
+                throw new IllegalArgumentException("No value supplied for the named parameter '" + name + "'.");
+            }
+            arguments[i] = paramMap.get(name);
+        }
+        return arguments;
+    }
+}
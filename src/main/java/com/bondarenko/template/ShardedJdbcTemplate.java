@@ -0,0 +1,331 @@
+package com.bondarenko.template;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.QueryTimeoutException;
+import com.bondarenko.exception.SqlExceptionTranslator;
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.timeout.Deadline;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs queries and updates against a table that is split across several databases.
+ * <p>
+ * Operations given a shard key are routed to the single shard owning it, chosen by applying the shard-key function
+ * and taking the result modulo the number of shards. Keyless operations are sent to every shard in parallel, so
+ * their latency is that of the slowest shard rather than the sum of all of them, and the results are merged.
+ * Ordered queries are merged with a k-way merge, which relies on every shard returning its rows in the order of
+ * the given comparator, i.e. the SQL must have a matching ORDER BY. A limit is pushed down to every shard as its
+ * maximum row count, since no shard can contribute more rows than that to the merged result.
+ * <p>
+ * When a query timeout is set, all shards of a fan-out share one deadline. Shard queries run on a pool owned by
+ * this template, which is released by {@link #close()}. Shard results are collected as they complete, so a failing
+ * shard fails the call at once instead of after the shards before it. Shard queries that have not started yet are
+ * then skipped; those still running are not interrupted, since an interrupt can close the driver's channels and
+ * with them the connection, but are cancelled through the query timeout of their shard when it expires.
+ */
+public class ShardedJdbcTemplate implements AutoCloseable {
+    private final List<JdbcTemplate> shards;
+    private final ToIntFunction<Object> shardKeyFunction;
+    private final ExecutorService executor;
+    private Duration queryTimeout;
+
+    /**
+     * Constructs a new ShardedJdbcTemplate that assigns keys to shards by their hash code.
+     * Shard keys must therefore have a value-based hashCode that is stable across JVMs, such as Integer, Long or
+     * String; keys with the identity hashCode of Object would be routed to a different shard on every run.
+     *
+     * @param dataSources The DataSource of every shard, in shard order.
+     */
+    public ShardedJdbcTemplate(List<DataSource> dataSources) {
+        this(dataSources, Objects::hashCode);
+    }
+
+    /**
+     * Constructs a new ShardedJdbcTemplate.
+     *
+     * @param dataSources      The DataSource of every shard, in shard order.
+     * @param shardKeyFunction The function mapping a shard key to a number; the key is owned by the shard at
+     *                         index {@code floorMod(number, shardCount)}.
+     */
+    public ShardedJdbcTemplate(List<DataSource> dataSources, ToIntFunction<Object> shardKeyFunction) {
+        ValidationUtils.validateNotNull(dataSources, "DataSources");
+        ValidationUtils.validateNotNull(shardKeyFunction, "Shard key function");
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one DataSource is required.");
+        }
+        List<JdbcTemplate> shards = new ArrayList<>(dataSources.size());
+        for (DataSource dataSource : dataSources) {
+            ValidationUtils.validateNotNull(dataSource, "DataSource");
+            shards.add(new JdbcTemplate(dataSource));
+        }
+        this.shards = List.copyOf(shards);
+        this.shardKeyFunction = shardKeyFunction;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-template-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the time budget of every call. For fan-out operations the budget covers all shards together.
+     *
+     * @param queryTimeout The time budget per call, or null for no limit.
+     */
+    public void setQueryTimeout(Duration queryTimeout) {
+        if (queryTimeout != null && (queryTimeout.isNegative() || queryTimeout.isZero())) {
+            throw new IllegalArgumentException("queryTimeout should be positive.");
+        }
+        this.queryTimeout = queryTimeout;
+    }
+
+    /**
+     * Sets the translator that turns driver exceptions of every shard into the DataAccessException hierarchy.
+     *
+     * @param exceptionTranslator The exception translator.
+     */
+    public void setExceptionTranslator(SqlExceptionTranslator exceptionTranslator) {
+        for (JdbcTemplate shard : shards) {
+            shard.setExceptionTranslator(exceptionTranslator);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the index of the shard owning the given key.
+     *
+     * @param shardKey The shard key.
+     * @return The shard index.
+     */
+    public int getShardIndex(Object shardKey) {
+        ValidationUtils.validateNotNull(shardKey, "Shard key");
+        return Math.floorMod(shardKeyFunction.applyAsInt(shardKey), shards.size());
+    }
+
+    /**
+     * Returns the template of the shard owning the given key, with the query timeout of this template applied.
+     *
+     * @param shardKey The shard key.
+     * @return The template of the owning shard.
+     */
+    public JdbcTemplate forKey(Object shardKey) {
+        JdbcTemplate shard = shards.get(getShardIndex(shardKey));
+        return queryTimeout == null ? shard : shard.withTimeout(queryTimeout);
+    }
+
+    /**
+     * Executes a SQL query on the shard owning the given key.
+     *
+     * @param shardKey  The shard key.
+     * @param sql       The SQL query to execute.
+     * @param rowMapper The RowMapper to use for mapping each result row to a Java object.
+     * @param params    The parameters to be bound to the query.
+     * @param <T>       The type of objects to be returned.
+     * @return A list of Java objects resulting from the query execution.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public <T> List<T> query(Object shardKey, String sql, RowMapper<T> rowMapper, Object... params) {
+        return forKey(shardKey).query(sql, rowMapper, params);
+    }
+
+    /**
+     * Executes a SQL query on the shard owning the given key and maps the first row of the result set.
+     *
+     * @param shardKey  The shard key.
+     * @param sql       The SQL query to execute.
+     * @param rowMapper The RowMapper to use for mapping the result row to a Java object.
+     * @param params    The parameters to be bound to the query.
+     * @param <T>       The type of the object to be returned.
+     * @return The Java object resulting from the query execution, or null if no result was found.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public <T> T queryForObject(Object shardKey, String sql, RowMapper<T> rowMapper, Object... params) {
+        return forKey(shardKey).queryForObject(sql, rowMapper, params);
+    }
+
+    /**
+     * Executes a SQL update statement on the shard owning the given key.
+     *
+     * @param shardKey The shard key.
+     * @param sql      The SQL update statement to execute.
+     * @param params   The parameters to be bound to the update statement.
+     * @return The number of rows affected by the update.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public int update(Object shardKey, String sql, Object... params) {
+        return forKey(shardKey).update(sql, params);
+    }
+
+    /**
+     * Executes a SQL query on every shard in parallel and concatenates the results in shard order.
+     *
+     * @param sql       The SQL query to execute.
+     * @param rowMapper The RowMapper to use for mapping each result row to a Java object.
+     * @param params    The parameters to be bound to the query.
+     * @param <T>       The type of objects to be returned.
+     * @return The rows of all shards.
+     * @throws DataAccessException If there is an error on any shard.
+     */
+    public <T> List<T> queryAll(String sql, RowMapper<T> rowMapper, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateParamArray(params);
+        List<List<T>> results = fanOut(shard -> shard.query(sql, rowMapper, params));
+        List<T> rows = new ArrayList<>();
+        for (List<T> result : results) {
+            rows.addAll(result);
+        }
+        return rows;
+    }
+
+    /**
+     * Executes an ordered SQL query on every shard in parallel and merges the results into one ordered list.
+     *
+     * @param sql        The SQL query to execute. Its ORDER BY must sort the rows of every shard by the comparator.
+     * @param rowMapper  The RowMapper to use for mapping each result row to a Java object.
+     * @param comparator The order of the rows.
+     * @param limit      The maximum number of rows to return, or 0 for no limit.
+     * @param params     The parameters to be bound to the query.
+     * @param <T>        The type of objects to be returned.
+     * @return The first {@code limit} rows of all shards in comparator order.
+     * @throws DataAccessException If there is an error on any shard.
+     */
+    public <T> List<T> queryAllOrdered(String sql, RowMapper<T> rowMapper, Comparator<? super T> comparator, int limit,
+                                       Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateNotNull(comparator, "Comparator");
+        ValidationUtils.validateParamArray(params);
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit should not be negative.");
+        }
+        List<List<T>> results = fanOut(shard -> shard.withMaxRows(limit).query(sql, rowMapper, params));
+        return merge(results, comparator, limit);
+    }
+
+    /**
+     * Executes a SQL update statement on every shard in parallel.
+     *
+     * @param sql    The SQL update statement to execute.
+     * @param params The parameters to be bound to the update statement.
+     * @return The number of rows affected on all shards.
+     * @throws DataAccessException If there is an error on any shard.
+     */
+    public int updateAll(String sql, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateParamArray(params);
+        int updatedRows = 0;
+        for (Integer count : fanOut(shard -> shard.update(sql, params))) {
+            updatedRows += count;
+        }
+        return updatedRows;
+    }
+
+    /**
+     * Releases the threads used for fan-out operations.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <R> List<R> fanOut(Function<JdbcTemplate, R> operation) {
+        Deadline deadline = queryTimeout == null ? null : Deadline.after(queryTimeout);
+        CompletionService<R> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<R>> futures = new ArrayList<>(shards.size());
+        for (JdbcTemplate shard : shards) {
+            JdbcTemplate template = deadline == null ? shard : shard.withTimeout(Duration.ofNanos(Math.max(1, deadline.remainingNanos())));
+            futures.add(completionService.submit(() -> operation.apply(template)));
+        }
+
+        List<R> results = new ArrayList<>(Collections.nCopies(futures.size(), null));
+        try {
+            for (int completed = 0; completed < futures.size(); completed++) {
+                Future<R> future = deadline == null
+                        ? completionService.take()
+                        : completionService.poll(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new QueryTimeoutException("Query timeout of " + queryTimeout + " expired before every shard answered");
+                }
+                results.set(futures.indexOf(future), future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException(e);
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static <T> List<T> merge(List<List<T>> results, Comparator<? super T> comparator, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((left, right) -> {
+            int order = comparator.compare(left.current(), right.current());
+            return order != 0 ? order : Integer.compare(left.shardIndex, right.shardIndex);
+        });
+        int total = 0;
+        for (int i = 0; i < results.size(); i++) {
+            List<T> rows = results.get(i);
+            total += rows.size();
+            if (!rows.isEmpty()) {
+                heads.add(new Cursor<>(i, rows));
+            }
+        }
+
+        int size = limit == 0 ? total : Math.min(limit, total);
+        List<T> merged = new ArrayList<>(size);
+        while (merged.size() < size) {
+            Cursor<T> cursor = heads.poll();
+            merged.add(cursor.current());
+            if (++cursor.position < cursor.rows.size()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static class Cursor<T> {
+        private final int shardIndex;
+        private final List<T> rows;
+        private int position;
+
+        private Cursor(int shardIndex, List<T> rows) {
+            this.shardIndex = shardIndex;
+            this.rows = rows;
+        }
+
+        private T current() {
+            return rows.get(position);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.bondarenko.template;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.SqlExceptionTranslator;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The WriteBehindJdbcTemplate buffers single-row updates and writes them in groups.
+ * Callers enqueue updates into a lock-free queue and immediately receive a future. A single flusher thread drains
+ * the queue once the buffered update count reaches the batch size or the flush interval elapses, coalesces updates
+ * with the same SQL into JDBC batches and executes the batches of each statement in one transaction. Each future
+ * completes with the affected row count after the transaction has been committed.
+ * <p>
+ * If the batches of a statement fail, its transaction is rolled back and its updates are executed again one at a
+ * time, each committed on its own, so only the updates that fail by themselves complete exceptionally. The updates
+ * of the other statements in the same flush are not affected.
+ * <p>
+ * Updates with the same SQL are executed in submission order, but updates with different SQL in the same flush
+ * are grouped by statement, so callers must not rely on ordering between different statements.
+ */
+public class WriteBehindJdbcTemplate implements AutoCloseable {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(5);
+
+    private final DataSource dataSource;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final Queue<PendingUpdate> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger bufferedUpdates = new AtomicInteger();
+    private final Thread flusher;
+    private volatile boolean closed;
+    private volatile SqlExceptionTranslator exceptionTranslator = new SqlExceptionTranslator();
+
+    /**
+     * Constructs a new WriteBehindJdbcTemplate flushing every 500 updates or every 5 milliseconds.
+     *
+     * @param dataSource The DataSource to be used for database connections.
+     */
+    public WriteBehindJdbcTemplate(DataSource dataSource) {
+        this(dataSource, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructs a new WriteBehindJdbcTemplate and starts its flusher thread.
+     *
+     * @param dataSource    The DataSource to be used for database connections.
+     * @param maxBatchSize  The number of buffered updates that triggers an immediate flush and the maximum JDBC batch size.
+     * @param flushInterval The maximum time an update waits in the buffer before it is flushed.
+     */
+    public WriteBehindJdbcTemplate(DataSource dataSource, int maxBatchSize, Duration flushInterval) {
+        ValidationUtils.validateNotNull(dataSource, "DataSource");
+        ValidationUtils.validateNotNull(flushInterval, "Flush interval");
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize should be positive.");
+        }
+        this.dataSource = dataSource;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Sets the translator that turns driver exceptions of failed flushes into the DataAccessException hierarchy.
+     *
+     * @param exceptionTranslator The exception translator.
+     */
+    public void setExceptionTranslator(SqlExceptionTranslator exceptionTranslator) {
+        ValidationUtils.validateNotNull(exceptionTranslator, "Exception translator");
+        this.exceptionTranslator = exceptionTranslator;
+    }
+
+    /**
+     * Buffers a SQL update statement with the provided parameters.
+     *
+     * @param sql    The SQL update statement to execute.
+     * @param params The parameters to be bound to the update statement.
+     * @return A future completed with the number of affected rows once the update has been committed, or with
+     * {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver executed the batch without reporting row counts.
+     * @throws IllegalStateException If the template has been closed.
+     */
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        ValidationUtils.validateSql(sql);
+        ValidationUtils.validateParamArray(params);
+        if (closed) {
+            throw new IllegalStateException("WriteBehindJdbcTemplate is closed.");
+        }
+        PendingUpdate update = new PendingUpdate(sql, params);
+        buffer.offer(update);
+        // close() may have drained the buffer for the last time after the check above; an update still in the
+        // buffer then would never be flushed, so it is taken back. If it is gone, a flush has taken it.
+        if (closed && buffer.remove(update)) {
+            throw new IllegalStateException("WriteBehindJdbcTemplate is closed.");
+        }
+        if (bufferedUpdates.incrementAndGet() == maxBatchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return update.future;
+    }
+
+    /**
+     * Stops accepting updates, flushes everything still buffered and waits for the flusher thread to finish.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        int remaining = bufferedUpdates.get();
+        if (remaining > 0) {
+            flush(remaining);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed || !buffer.isEmpty()) {
+            if (bufferedUpdates.get() < maxBatchSize && !closed) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            int count = bufferedUpdates.get();
+            if (count > 0) {
+                flush(count);
+            }
+        }
+    }
+
+    private void flush(int count) {
+        Map<String, List<PendingUpdate>> updatesBySql = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            PendingUpdate update = buffer.poll();
+            if (update == null) {
+                break;
+            }
+            updatesBySql.computeIfAbsent(update.sql, sql -> new ArrayList<>()).add(update);
+        }
+        bufferedUpdates.addAndGet(-count);
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            try {
+                for (Map.Entry<String, List<PendingUpdate>> entry : updatesBySql.entrySet()) {
+                    flushStatement(connection, entry.getKey(), entry.getValue());
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (Throwable e) {
+            // Also catches errors, which would otherwise end the flusher thread and leave the drained updates
+            // without an outcome. Updates of statements that have already been flushed are completed and unaffected.
+            DataAccessException exception = translate(e);
+            for (List<PendingUpdate> updates : updatesBySql.values()) {
+                for (PendingUpdate update : updates) {
+                    update.future.completeExceptionally(exception);
+                }
+            }
+        }
+    }
+
+    private void flushStatement(Connection connection, String sql, List<PendingUpdate> updates) throws SQLException {
+        connection.setAutoCommit(false);
+        int[] rowCounts;
+        try {
+            rowCounts = executeBatches(connection, sql, updates);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            executeOneByOne(connection, sql, updates);
+            return;
+        } catch (RuntimeException | Error e) {
+            connection.rollback();
+            throw e;
+        }
+        for (int i = 0; i < updates.size(); i++) {
+            updates.get(i).future.complete(rowCounts[i]);
+        }
+    }
+
+    private void executeOneByOne(Connection connection, String sql, List<PendingUpdate> updates) throws SQLException {
+        connection.setAutoCommit(true);
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (PendingUpdate update : updates) {
+                try {
+                    for (int j = 0; j < update.params.length; j++) {
+                        statement.setObject(j + 1, update.params[j]);
+                    }
+                    update.future.complete(statement.executeUpdate());
+                } catch (SQLException e) {
+                    update.future.completeExceptionally(exceptionTranslator.translate(e));
+                }
+            }
+        } catch (SQLException e) {
+            DataAccessException exception = exceptionTranslator.translate(e);
+            for (PendingUpdate update : updates) {
+                update.future.completeExceptionally(exception);
+            }
+        }
+    }
+
+    private DataAccessException translate(Throwable e) {
+        if (e instanceof SQLException) {
+            return exceptionTranslator.translate((SQLException) e);
+        }
+        if (e instanceof Exception) {
+            return new DataAccessException((Exception) e);
+        }
+        DataAccessException exception = new DataAccessException("Flush failed: " + e);
+        exception.initCause(e);
+        return exception;
+    }
+
+    private int[] executeBatches(Connection connection, String sql, List<PendingUpdate> updates) throws SQLException {
+        int[] rowCounts = new int[updates.size()];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int batchStart = 0;
+            for (int i = 0; i < updates.size(); i++) {
+                Object[] params = updates.get(i).params;
+                for (int j = 0; j < params.length; j++) {
+                    statement.setObject(j + 1, params[j]);
+                }
+                statement.addBatch();
+                if (i - batchStart + 1 == maxBatchSize || i == updates.size() - 1) {
+                    int[] batchCounts = statement.executeBatch();
+                    System.arraycopy(batchCounts, 0, rowCounts, batchStart, batchCounts.length);
+                    batchStart = i + 1;
+                }
+            }
+        }
+        return rowCounts;
+    }
+
+    private static class PendingUpdate {
+        private final String sql;
+        private final Object[] params;
+        private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        private PendingUpdate(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.bondarenko.template.bulk;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.template.JdbcTemplate;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads line oriented files into a table through the DataSource of a {@link JdbcTemplate}.
+ * The input file is memory-mapped and split into chunks at newline boundaries. Chunks are parsed by a pool of
+ * parser threads, and parsed rows are handed over in batches through a bounded queue to a number of inserter
+ * threads, each holding its own connection and executing chunked JDBC batches, so parsing and inserting overlap.
+ * When the inserters fall behind, the full queue blocks the parsers.
+ * <p>
+ * Lines the parser cannot handle, and rows the database refuses, are counted as rejected and copied to the
+ * reject file when one is configured.
+ */
+public class BulkLoader {
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final long MIN_CHUNK_SIZE = 1024L * 1024;
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final RowBatch END_OF_INPUT = new RowBatch(0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertSql;
+    private final LineParser lineParser;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private int connections = 4;
+    private int batchSize = 1000;
+    private int queueCapacity = 16;
+    private boolean skipHeader;
+    private Path rejectFile;
+
+    /**
+     * Constructs a new BulkLoader.
+     *
+     * @param jdbcTemplate The template whose DataSource provides the inserting connections.
+     * @param insertSql    The parameterized insert statement executed for every row.
+     * @param lineParser   The parser converting a line into the insert parameters.
+     */
+    public BulkLoader(JdbcTemplate jdbcTemplate, String insertSql, LineParser lineParser) {
+        ValidationUtils.validateNotNull(jdbcTemplate, "JdbcTemplate");
+        ValidationUtils.validateSql(insertSql);
+        ValidationUtils.validateNotNull(lineParser, "LineParser");
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = insertSql;
+        this.lineParser = lineParser;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = requirePositive(parserThreads, "parserThreads");
+    }
+
+    public void setConnections(int connections) {
+        this.connections = requirePositive(connections, "connections");
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = requirePositive(batchSize, "batchSize");
+    }
+
+    /**
+     * Sets the number of parsed batches that may wait for an inserter before parsers are blocked.
+     *
+     * @param queueCapacity The capacity of the queue between parsers and inserters, in batches.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = requirePositive(queueCapacity, "queueCapacity");
+    }
+
+    public void setSkipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Sets the file receiving rejected lines. The file is overwritten on every load.
+     *
+     * @param rejectFile The reject file, or null to only count rejected lines.
+     */
+    public void setRejectFile(Path rejectFile) {
+        this.rejectFile = rejectFile;
+    }
+
+    /**
+     * Loads every line of the given file.
+     *
+     * @param file The UTF-8 encoded input file.
+     * @return The load summary including the achieved rows per second.
+     * @throws DataAccessException If the file cannot be read or an inserter connection fails.
+     */
+    public LoadResult load(Path file) {
+        ValidationUtils.validateNotNull(file, "File");
+        long start = System.nanoTime();
+        ExecutorService parsers = Executors.newFixedThreadPool(parserThreads);
+        ExecutorService inserters = Executors.newFixedThreadPool(connections);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             RejectWriter rejectWriter = new RejectWriter(rejectFile)) {
+
+            LoadContext context = new LoadContext(queueCapacity, rejectWriter);
+            List<Future<?>> inserterFutures = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                inserterFutures.add(inserters.submit(() -> insert(context)));
+            }
+
+            List<Future<?>> parserFutures = new ArrayList<>();
+            List<long[]> chunks = splitIntoChunks(channel);
+            for (int i = 0; i < chunks.size(); i++) {
+                long[] chunk = chunks.get(i);
+                boolean firstChunk = i == 0;
+                parserFutures.add(parsers.submit(() -> parse(channel, chunk[0], chunk[1], firstChunk, context)));
+            }
+
+            awaitAll(parserFutures, context);
+            for (int i = 0; i < connections; i++) {
+                context.offer(END_OF_INPUT);
+            }
+            awaitAll(inserterFutures, context);
+
+            Exception failure = context.failure.get();
+            if (failure instanceof SQLException) {
+                throw jdbcTemplate.getExceptionTranslator().translate((SQLException) failure);
+            }
+            if (failure != null) {
+                throw new DataAccessException(failure);
+            }
+            return new LoadResult(context.loadedRows.get(), context.rejectedRows.get(),
+                    Duration.ofNanos(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new DataAccessException(e);
+        } finally {
+            parsers.shutdownNow();
+            inserters.shutdownNow();
+        }
+    }
+
+    private List<long[]> splitIntoChunks(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parserThreads * 4L)));
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = 0;
+        while (chunkStart < size) {
+            long chunkEnd = chunkStart + chunkSize >= size ? size : findLineStart(channel, chunkStart + chunkSize);
+            chunks.add(new long[]{chunkStart, chunkEnd});
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private static long findLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer scanBuffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long size = channel.size();
+        while (position < size) {
+            scanBuffer.clear();
+            int read = channel.read(scanBuffer, position);
+            for (int i = 0; i < read; i++) {
+                if (scanBuffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private Void parse(FileChannel channel, long start, long end, boolean firstChunk, LoadContext context) throws IOException {
+        try {
+            parseChunk(channel, start, end, firstChunk, context);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            context.fail(e);
+            throw e;
+        }
+    }
+
+    private void parseChunk(FileChannel channel, long start, long end, boolean firstChunk, LoadContext context) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        byte[] lineBytes = new byte[256];
+        boolean skipLine = firstChunk && skipHeader;
+        RowBatch batch = new RowBatch(batchSize);
+        while (mapped.hasRemaining() && context.failure.get() == null) {
+            int length = 0;
+            while (mapped.hasRemaining()) {
+                byte b = mapped.get();
+                if (b == '\n') {
+                    break;
+                }
+                if (length == lineBytes.length) {
+                    byte[] grown = new byte[lineBytes.length * 2];
+                    System.arraycopy(lineBytes, 0, grown, 0, length);
+                    lineBytes = grown;
+                }
+                lineBytes[length++] = b;
+            }
+            if (length > 0 && lineBytes[length - 1] == '\r') {
+                length--;
+            }
+            if (skipLine) {
+                skipLine = false;
+                continue;
+            }
+            if (length == 0) {
+                continue;
+            }
+
+            String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            Object[] row;
+            try {
+                row = lineParser.parse(line);
+            } catch (RuntimeException e) {
+                context.reject(line);
+                continue;
+            }
+            batch.add(line, row);
+            if (batch.size() == batchSize) {
+                context.offer(batch);
+                batch = new RowBatch(batchSize);
+            }
+        }
+        if (batch.size() > 0) {
+            context.offer(batch);
+        }
+    }
+
+    private Void insert(LoadContext context) throws SQLException, IOException, InterruptedException {
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(insertSql)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                while (true) {
+                    RowBatch batch = context.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (batch == END_OF_INPUT || context.failure.get() != null) {
+                        return null;
+                    }
+                    if (batch != null) {
+                        insertBatch(connection, statement, batch, context);
+                    }
+                }
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | IOException | InterruptedException | RuntimeException e) {
+            context.fail(e);
+            throw e;
+        }
+    }
+
+    private static void insertBatch(Connection connection, PreparedStatement statement, RowBatch batch,
+                                    LoadContext context) throws SQLException, IOException {
+        try {
+            for (Object[] row : batch.rows) {
+                bind(statement, row);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+            context.loadedRows.addAndGet(batch.size());
+        } catch (SQLException e) {
+            statement.clearBatch();
+            connection.rollback();
+            if (!isDataError(e)) {
+                throw e;
+            }
+            insertRowByRow(connection, statement, batch, context);
+        }
+    }
+
+    /**
+     * Replays a failed batch one row at a time so that only the rows refused by the database are rejected.
+     * A failure other than a data or constraint error, such as a lost connection, fails the load.
+     */
+    private static void insertRowByRow(Connection connection, PreparedStatement statement, RowBatch batch,
+                                       LoadContext context) throws SQLException, IOException {
+        connection.setAutoCommit(true);
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    bind(statement, batch.rows.get(i));
+                    statement.executeUpdate();
+                    context.loadedRows.incrementAndGet();
+                } catch (SQLException e) {
+                    if (!isDataError(e)) {
+                        throw e;
+                    }
+                    context.reject(batch.lines.get(i));
+                }
+            }
+        } finally {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Returns whether the database refused the data itself, i.e. the SQLState is of class 22 (data exception) or
+     * 23 (integrity constraint violation), as opposed to a failure of the connection or the transaction.
+     */
+    static boolean isDataError(SQLException exception) {
+        String sqlState = exception.getSQLState();
+        if (sqlState == null && exception.getNextException() != null) {
+            sqlState = exception.getNextException().getSQLState();
+        }
+        return sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+    }
+
+    private static void bind(PreparedStatement statement, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            statement.setObject(i + 1, row[i]);
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures, LoadContext context) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                context.fail(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                context.fail(e);
+            }
+        }
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " should be positive.");
+        }
+        return value;
+    }
+
+    private static class RowBatch {
+        private final List<String> lines;
+        private final List<Object[]> rows;
+
+        private RowBatch(int capacity) {
+            this.lines = new ArrayList<>(capacity);
+            this.rows = new ArrayList<>(capacity);
+        }
+
+        private void add(String line, Object[] row) {
+            lines.add(line);
+            rows.add(row);
+        }
+
+        private int size() {
+            return rows.size();
+        }
+    }
+
+    private static class LoadContext {
+        private final BlockingQueue<RowBatch> queue;
+        private final RejectWriter rejectWriter;
+        private final AtomicLong loadedRows = new AtomicLong();
+        private final AtomicLong rejectedRows = new AtomicLong();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        private LoadContext(int queueCapacity, RejectWriter rejectWriter) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.rejectWriter = rejectWriter;
+        }
+
+        /**
+         * Blocks while the queue is full, giving up once another thread has failed the load.
+         */
+        private void offer(RowBatch batch) {
+            try {
+                while (failure.get() == null) {
+                    if (queue.offer(batch, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        private void reject(String line) throws IOException {
+            rejectedRows.incrementAndGet();
+            rejectWriter.write(line);
+        }
+
+        private void fail(Exception exception) {
+            failure.compareAndSet(null, exception);
+        }
+    }
+
+    private static class RejectWriter implements AutoCloseable {
+        private final BufferedWriter writer;
+
+        private RejectWriter(Path rejectFile) throws IOException {
+            this.writer = rejectFile == null ? null : Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+        }
+
+        private synchronized void write(String line) throws IOException {
+            if (writer != null) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.bondarenko.template.bulk;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.template.ConnectionScope;
+import com.bondarenko.template.JdbcTemplate;
+import com.bondarenko.template.jfr.OperationTrace;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inserts or updates many rows of a table with one set-based statement instead of one upsert per row.
+ * <p>
+ * The rows are loaded with JDBC batches into a temporary staging table of the session, which is then merged into
+ * the target table by a single statement of the database's {@link UpsertDialect}. Loading and merging run in one
+ * transaction, and the staging table is dropped afterwards, even if the upsert fails, so a pooled connection is
+ * returned without it.
+ * <p>
+ * On PostgreSQL the merge reports for every row whether it was inserted. On other databases the staging rows are
+ * joined with the target table on the key columns before the merge to count how many of them update an existing
+ * row. Under the default READ COMMITTED isolation, rows another transaction commits between that count and the
+ * merge are not counted, so with concurrent writers on the same keys the split between inserted and updated rows
+ * is an estimate; their sum is always the number of given rows.
+ * <p>
+ * The upsert is one call of the template: it holds one permit of the concurrency limiter, is recorded as one update
+ * event, and the query timeout covers creating the staging table, loading it and merging it, with every statement
+ * cancelled when the timeout expires.
+ * <p>
+ * The key columns must identify at most one row of the target table, and the given rows must not repeat a key.
+ */
+public class BulkUpserter {
+    private static final AtomicLong STAGING_TABLE_NUMBER = new AtomicLong();
+
+    private final JdbcTemplate jdbcTemplate;
+    private int batchSize = 1000;
+    private UpsertDialect dialect;
+
+    /**
+     * Constructs a new BulkUpserter.
+     *
+     * @param jdbcTemplate The template whose DataSource provides the connection.
+     */
+    public BulkUpserter(JdbcTemplate jdbcTemplate) {
+        ValidationUtils.validateNotNull(jdbcTemplate, "JdbcTemplate");
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize should be positive.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the dialect of the merge statement.
+     *
+     * @param dialect The dialect, or null to detect it from the database product name.
+     */
+    public void setDialect(UpsertDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Inserts the rows whose keys are not in the table yet and updates the others.
+     *
+     * @param table      The target table.
+     * @param keyColumns The columns identifying a row; each must also be one of {@code columns}.
+     * @param columns    The columns written by the upsert, in the order of the row values.
+     * @param rows       The rows, each holding one value per column.
+     * @return The numbers of inserted and updated rows.
+     * @throws DataAccessException If there is an error during the database operation.
+     */
+    public UpsertResult upsert(String table, List<String> keyColumns, List<String> columns, Iterable<Object[]> rows) {
+        validate(table, keyColumns, columns, rows);
+        long start = System.nanoTime();
+        String staging = "upsert_staging_" + STAGING_TABLE_NUMBER.incrementAndGet();
+        String operation = "UPSERT INTO " + table + " (" + String.join(", ", columns) + ")";
+        return jdbcTemplate.executeInConnection(OperationTrace.update(operation, columns.size()), operation, scope -> {
+            Connection connection = scope.getConnection();
+            UpsertDialect upsertDialect = dialect != null
+                    ? dialect : UpsertDialect.of(connection.getMetaData().getDatabaseProductName());
+            boolean autoCommit = connection.getAutoCommit();
+            try (Statement statement = scope.createStatement()) {
+                statement.execute(upsertDialect.createStagingSql(staging, table, columns));
+            }
+
+            long updatedRows;
+            long stagedRows;
+            try {
+                connection.setAutoCommit(false);
+                stagedRows = load(scope, staging, columns, rows);
+                scope.getTrace().prepared();
+                String mergeSql = upsertDialect.mergeSql(table, staging, keyColumns, columns);
+                if (upsertDialect.returnsInsertedFlags()) {
+                    updatedRows = stagedRows - mergeReturningInserted(scope, mergeSql);
+                } else {
+                    updatedRows = countExisting(scope, table, staging, keyColumns);
+                    try (Statement statement = scope.createStatement()) {
+                        statement.executeUpdate(mergeSql);
+                    }
+                }
+                connection.commit();
+                scope.getTrace().executed();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                cleanUp(connection, autoCommit, upsertDialect.dropStagingSql(staging), e);
+                throw e;
+            }
+            cleanUp(connection, autoCommit, upsertDialect.dropStagingSql(staging), null);
+            scope.getTrace().completed(stagedRows);
+            return new UpsertResult(stagedRows - updatedRows, updatedRows, Duration.ofNanos(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Restores the auto-commit mode and drops the staging table. If the upsert has already failed, errors of the
+     * clean-up are added to its exception as suppressed, so they do not hide the cause of the failure. The drop does
+     * not go through the scope, so it also runs after the time budget of the call has been used up.
+     */
+    private static void cleanUp(Connection connection, boolean autoCommit, String dropSql, Exception failure)
+            throws SQLException {
+        SQLException cleanUpFailure = null;
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            cleanUpFailure = e;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(dropSql);
+        } catch (SQLException e) {
+            if (cleanUpFailure == null) {
+                cleanUpFailure = e;
+            } else {
+                cleanUpFailure.addSuppressed(e);
+            }
+        }
+        if (cleanUpFailure == null) {
+            return;
+        }
+        if (failure != null) {
+            failure.addSuppressed(cleanUpFailure);
+            return;
+        }
+        throw cleanUpFailure;
+    }
+
+    private static long mergeReturningInserted(ConnectionScope scope, String mergeSql) throws SQLException {
+        long insertedRows = 0;
+        try (Statement statement = scope.createStatement();
+             ResultSet resultSet = statement.executeQuery(mergeSql)) {
+            while (resultSet.next()) {
+                if (resultSet.getBoolean(1)) {
+                    insertedRows++;
+                }
+            }
+        }
+        return insertedRows;
+    }
+
+    private long load(ConnectionScope scope, String staging, List<String> columns, Iterable<Object[]> rows)
+            throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        String insertSql = "INSERT INTO " + staging + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+        long stagedRows = 0;
+        try (PreparedStatement statement = scope.prepareStatement(insertSql)) {
+            int batchedRows = 0;
+            for (Object[] row : rows) {
+                if (row == null || row.length != columns.size()) {
+                    throw new IllegalArgumentException("Every row should have one value per column.");
+                }
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.addBatch();
+                stagedRows++;
+                if (++batchedRows == batchSize) {
+                    statement.executeBatch();
+                    batchedRows = 0;
+                }
+            }
+            if (batchedRows > 0) {
+                statement.executeBatch();
+            }
+        }
+        return stagedRows;
+    }
+
+    private static long countExisting(ConnectionScope scope, String table, String staging, List<String> keyColumns)
+            throws SQLException {
+        StringJoiner on = new StringJoiner(" AND ");
+        for (String key : keyColumns) {
+            on.add("t." + key + " = s." + key);
+        }
+        try (Statement statement = scope.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT COUNT(*) FROM " + staging + " s JOIN " + table + " t ON " + on)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static void validate(String table, List<String> keyColumns, List<String> columns, Iterable<Object[]> rows) {
+        ValidationUtils.validateIdentifier(table, "Table");
+        ValidationUtils.validateNotNull(keyColumns, "Key columns");
+        ValidationUtils.validateNotNull(columns, "Columns");
+        ValidationUtils.validateNotNull(rows, "Rows");
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("At least one key column is required.");
+        }
+        for (String column : columns) {
+            ValidationUtils.validateIdentifier(column, "Column");
+        }
+        for (String key : keyColumns) {
+            ValidationUtils.validateIdentifier(key, "Key column");
+            if (columns.stream().noneMatch(key::equalsIgnoreCase)) {
+                throw new IllegalArgumentException("Key column '" + key + "' should be one of the columns.");
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bondarenko.template.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts a single line of an input file into the parameters of an insert statement.
+ * Any runtime exception thrown by the parser rejects the line.
+ */
+@FunctionalInterface
+public interface LineParser {
+    Object[] parse(String line);
+
+    /**
+     * Returns a parser for comma separated lines. Fields may be enclosed in double quotes,
+     * in which case a doubled quote stands for a literal one. Empty unquoted fields are bound as null.
+     *
+     * @param expectedColumns The number of fields every line must contain.
+     * @return The CSV line parser.
+     */
+    static LineParser csv(int expectedColumns) {
+        return line -> {
+            List<String> fields = new ArrayList<>(expectedColumns);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    wasQuoted = true;
+                } else if (c == ',') {
+                    fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                    field.setLength(0);
+                    wasQuoted = false;
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field");
+            }
+            fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+            if (fields.size() != expectedColumns) {
+                throw new IllegalArgumentException("Expected " + expectedColumns + " fields but found " + fields.size());
+            }
+            return fields.toArray();
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.bondarenko.template.bulk;
+
+import java.time.Duration;
+
+/**
+ * Summary of a {@link BulkLoader} run.
+ */
+public class LoadResult {
+    private final long loadedRows;
+    private final long rejectedRows;
+    private final Duration elapsed;
+
+    public LoadResult(long loadedRows, long rejectedRows, Duration elapsed) {
+        this.loadedRows = loadedRows;
+        this.rejectedRows = rejectedRows;
+        this.elapsed = elapsed;
+    }
+
+    public long getLoadedRows() {
+        return loadedRows;
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the insert throughput of the run.
+     *
+     * @return The number of loaded rows per second of elapsed time.
+     */
+    public double getRowsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : loadedRows * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadResult{loadedRows=" + loadedRows + ", rejectedRows=" + rejectedRows
+                + ", elapsed=" + elapsed + ", rowsPerSecond=" + Math.round(getRowsPerSecond()) + "}";
+    }
+}
@@ -0,0 +1,134 @@
+package com.bondarenko.template.bulk;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * The SQL a {@link BulkUpserter} uses to create its staging table and to merge it into the target table.
+ */
+public enum UpsertDialect {
+    /**
+     * {@code MERGE INTO ... USING} as defined by SQL:2003, used by H2 and by databases not otherwise recognized.
+     */
+    H2 {
+        @Override
+        String createStagingSql(String staging, String table, List<String> columns) {
+            return "CREATE LOCAL TEMPORARY TABLE " + staging + " AS SELECT " + String.join(", ", columns)
+                    + " FROM " + table + " WHERE 1 = 0";
+        }
+
+        @Override
+        String mergeSql(String table, String staging, List<String> keyColumns, List<String> columns) {
+            StringJoiner on = new StringJoiner(" AND ", " ON (", ")");
+            for (String key : keyColumns) {
+                on.add("t." + key + " = s." + key);
+            }
+            StringJoiner set = new StringJoiner(", ", " WHEN MATCHED THEN UPDATE SET ", "");
+            set.setEmptyValue("");
+            for (String column : nonKeyColumns(keyColumns, columns)) {
+                set.add(column + " = s." + column);
+            }
+            StringJoiner values = new StringJoiner(", ", " VALUES (", ")");
+            for (String column : columns) {
+                values.add("s." + column);
+            }
+            return "MERGE INTO " + table + " t USING " + staging + " s" + on + set
+                    + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ")" + values;
+        }
+    },
+
+    /**
+     * {@code INSERT ... ON CONFLICT DO UPDATE}. The key columns must be covered by a unique constraint.
+     * The statement returns {@code xmax = 0} for every written row, which is true only for inserted rows, so the
+     * inserted and updated rows are counted by the merge itself.
+     */
+    POSTGRESQL {
+        @Override
+        boolean returnsInsertedFlags() {
+            return true;
+        }
+
+        @Override
+        String mergeSql(String table, String staging, List<String> keyColumns, List<String> columns) {
+            String columnList = String.join(", ", columns);
+            StringJoiner set = new StringJoiner(", ", " DO UPDATE SET ", "");
+            set.setEmptyValue(" DO NOTHING");
+            for (String column : nonKeyColumns(keyColumns, columns)) {
+                set.add(column + " = EXCLUDED." + column);
+            }
+            return "INSERT INTO " + table + " (" + columnList + ") SELECT " + columnList + " FROM " + staging
+                    + " ON CONFLICT (" + String.join(", ", keyColumns) + ")" + set + " RETURNING (xmax = 0)";
+        }
+    },
+
+    /**
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE}, for MySQL and MariaDB. The key columns must be covered by the
+     * primary key or a unique index.
+     */
+    MYSQL {
+        @Override
+        String dropStagingSql(String staging) {
+            return "DROP TEMPORARY TABLE " + staging;
+        }
+
+        @Override
+        String mergeSql(String table, String staging, List<String> keyColumns, List<String> columns) {
+            StringJoiner select = new StringJoiner(", ");
+            for (String column : columns) {
+                select.add("s." + column);
+            }
+            StringJoiner set = new StringJoiner(", ", " ON DUPLICATE KEY UPDATE ", "");
+            for (String column : nonKeyColumns(keyColumns, columns)) {
+                set.add(column + " = s." + column);
+            }
+            if (set.length() == " ON DUPLICATE KEY UPDATE ".length()) {
+                set.add(keyColumns.get(0) + " = " + keyColumns.get(0));
+            }
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") SELECT " + select
+                    + " FROM " + staging + " s" + set;
+        }
+    };
+
+    /**
+     * Returns the dialect of the given database product.
+     *
+     * @param databaseProductName The product name reported by the driver's DatabaseMetaData.
+     * @return The matching dialect, or {@link #H2} for databases not otherwise recognized.
+     */
+    public static UpsertDialect of(String databaseProductName) {
+        String product = databaseProductName == null ? "" : databaseProductName.toLowerCase(Locale.ROOT);
+        if (product.contains("postgres")) {
+            return POSTGRESQL;
+        }
+        if (product.contains("mysql") || product.contains("mariadb")) {
+            return MYSQL;
+        }
+        return H2;
+    }
+
+    String createStagingSql(String staging, String table, List<String> columns) {
+        return "CREATE TEMPORARY TABLE " + staging + " AS SELECT " + String.join(", ", columns)
+                + " FROM " + table + " WHERE 1 = 0";
+    }
+
+    String dropStagingSql(String staging) {
+        return "DROP TABLE " + staging;
+    }
+
+    /**
+     * Returns whether the merge statement is a query returning one boolean per written row that is true for
+     * inserted rows. Otherwise the merge is an update and existing rows are counted before it runs.
+     */
+    boolean returnsInsertedFlags() {
+        return false;
+    }
+
+    abstract String mergeSql(String table, String staging, List<String> keyColumns, List<String> columns);
+
+    private static List<String> nonKeyColumns(List<String> keyColumns, List<String> columns) {
+        return columns.stream()
+                .filter(column -> keyColumns.stream().noneMatch(key -> key.equalsIgnoreCase(column)))
+                .toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.bondarenko.template.bulk;
+
+import java.time.Duration;
+
+/**
+ * Summary of a {@link BulkUpserter} run.
+ */
+public class UpsertResult {
+    private final long insertedRows;
+    private final long updatedRows;
+    private final Duration elapsed;
+
+    public UpsertResult(long insertedRows, long updatedRows, Duration elapsed) {
+        this.insertedRows = insertedRows;
+        this.updatedRows = updatedRows;
+        this.elapsed = elapsed;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public long getUpdatedRows() {
+        return updatedRows;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the upsert throughput of the run.
+     *
+     * @return The number of inserted and updated rows per second of elapsed time.
+     */
+    public double getRowsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : (insertedRows + updatedRows) * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "UpsertResult{insertedRows=" + insertedRows + ", updatedRows=" + updatedRows
+                + ", elapsed=" + elapsed + ", rowsPerSecond=" + Math.round(getRowsPerSecond()) + "}";
+    }
+}
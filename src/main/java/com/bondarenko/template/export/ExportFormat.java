@@ -0,0 +1,17 @@
+package com.bondarenko.template.export;
+
+/**
+ * Output formats supported by {@link ResultSetExporter}.
+ */
+public enum ExportFormat {
+    /**
+     * RFC 4180 style comma separated values with a header line of column labels.
+     * Fields containing separators, quotes or line breaks are quoted; lines end with {@code \n}.
+     */
+    CSV,
+
+    /**
+     * One JSON object per line, keyed by column label.
+     */
+    JSON_LINES
+}
@@ -0,0 +1,443 @@
+package com.bondarenko.template.export;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+/**
+ * Streams the rows of a ResultSet into a WritableByteChannel as CSV or JSON Lines.
+ * Cells are encoded straight from the ResultSet into a reusable direct ByteBuffer without mapping rows to entities,
+ * and the buffer is written to the channel only when it is nearly full, so memory use stays constant
+ * regardless of the result size.
+ */
+public class ResultSetExporter {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_ENCODED_CHAR_LENGTH = 6;
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private final ExportFormat format;
+    private final WritableByteChannel channel;
+    private final byte[] numberScratch = new byte[20];
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a new exporter writing in the given format to the given channel.
+     *
+     * @param format  The output format.
+     * @param channel The channel receiving the encoded rows. It is not closed by the exporter.
+     */
+    public ResultSetExporter(ExportFormat format, WritableByteChannel channel) {
+        this.format = format;
+        this.channel = channel;
+    }
+
+    /**
+     * Writes every remaining row of the result set to the channel.
+     *
+     * @param resultSet The result set to export, positioned before the first row.
+     * @return The number of exported rows.
+     * @throws SQLException If reading the result set fails.
+     * @throws IOException  If writing to the channel fails.
+     */
+    public long export(ResultSet resultSet) throws SQLException, IOException {
+        buffer = BUFFERS.get();
+        buffer.clear();
+        try {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            int[] columnTypes = new int[columnCount];
+            byte[][] columnPrefixes = new byte[columnCount][];
+            for (int i = 0; i < columnCount; i++) {
+                columnTypes[i] = metaData.getColumnType(i + 1);
+                columnPrefixes[i] = columnPrefix(metaData.getColumnLabel(i + 1), i);
+            }
+
+            if (format == ExportFormat.CSV) {
+                for (int i = 0; i < columnCount; i++) {
+                    writeBytes(columnPrefixes[i]);
+                    writeText(metaData.getColumnLabel(i + 1));
+                }
+                ensureCapacity(1);
+                buffer.put((byte) '\n');
+            }
+
+            long rows = 0;
+            while (resultSet.next()) {
+                for (int i = 0; i < columnCount; i++) {
+                    writeBytes(columnPrefixes[i]);
+                    writeCell(resultSet, i + 1, columnTypes[i]);
+                }
+                ensureCapacity(2);
+                if (format == ExportFormat.JSON_LINES) {
+                    buffer.put((byte) '}');
+                }
+                buffer.put((byte) '\n');
+                rows++;
+            }
+            flush();
+            return rows;
+        } finally {
+            buffer.clear();
+            buffer = null;
+        }
+    }
+
+    private byte[] columnPrefix(String label, int index) {
+        ByteBuffer labelBuffer = ByteBuffer.allocate(label.length() * MAX_ENCODED_CHAR_LENGTH + 4);
+        if (format == ExportFormat.CSV) {
+            if (index > 0) {
+                labelBuffer.put((byte) ',');
+            }
+        } else {
+            labelBuffer.put(index == 0 ? (byte) '{' : (byte) ',');
+            labelBuffer.put((byte) '"');
+            for (int i = 0; i < label.length(); i++) {
+                i = putJsonChar(labelBuffer, label, i);
+            }
+            labelBuffer.put((byte) '"').put((byte) ':');
+        }
+        byte[] prefix = new byte[labelBuffer.position()];
+        labelBuffer.flip().get(prefix);
+        return prefix;
+    }
+
+    private void writeCell(ResultSet resultSet, int column, int type) throws SQLException, IOException {
+        switch (type) {
+            case Types.BIT, Types.BOOLEAN -> {
+                boolean value = resultSet.getBoolean(column);
+                if (resultSet.wasNull()) {
+                    writeNull();
+                } else {
+                    writeBytes(value ? TRUE : FALSE);
+                }
+            }
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> {
+                long value = resultSet.getLong(column);
+                if (resultSet.wasNull()) {
+                    writeNull();
+                } else {
+                    writeLong(value);
+                }
+            }
+            case Types.REAL, Types.FLOAT, Types.DOUBLE -> {
+                double value = resultSet.getDouble(column);
+                if (resultSet.wasNull() || (format == ExportFormat.JSON_LINES && !Double.isFinite(value))) {
+                    writeNull();
+                } else if (value == (long) value && Math.abs(value) < 1e15) {
+                    writeLong((long) value);
+                } else {
+                    writeAscii(Double.toString(value));
+                }
+            }
+            case Types.DECIMAL, Types.NUMERIC -> {
+                BigDecimal value = resultSet.getBigDecimal(column);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeAscii(value.toPlainString());
+                }
+            }
+            case Types.DATE -> {
+                LocalDate value = resultSet.getObject(column, LocalDate.class);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeQuote();
+                    writeDate(value);
+                    writeQuote();
+                }
+            }
+            case Types.TIME -> {
+                LocalTime value = resultSet.getObject(column, LocalTime.class);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeQuote();
+                    writeTime(value);
+                    writeQuote();
+                }
+            }
+            case Types.TIMESTAMP -> {
+                LocalDateTime value = resultSet.getObject(column, LocalDateTime.class);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeQuote();
+                    writeDate(value.toLocalDate());
+                    ensureCapacity(1);
+                    buffer.put((byte) 'T');
+                    writeTime(value.toLocalTime());
+                    writeQuote();
+                }
+            }
+            case Types.TIMESTAMP_WITH_TIMEZONE -> {
+                OffsetDateTime value = resultSet.getObject(column, OffsetDateTime.class);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeQuote();
+                    writeDate(value.toLocalDate());
+                    ensureCapacity(1);
+                    buffer.put((byte) 'T');
+                    writeTime(value.toLocalTime());
+                    writeOffset(value.getOffset());
+                    writeQuote();
+                }
+            }
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> {
+                byte[] value = resultSet.getBytes(column);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeQuote();
+                    writeBytes(Base64.getEncoder().encode(value));
+                    writeQuote();
+                }
+            }
+            default -> {
+                String value = resultSet.getString(column);
+                if (value == null) {
+                    writeNull();
+                } else {
+                    writeText(value);
+                }
+            }
+        }
+    }
+
+    private void writeNull() throws IOException {
+        if (format == ExportFormat.JSON_LINES) {
+            writeBytes(NULL);
+        }
+    }
+
+    private void writeQuote() throws IOException {
+        if (format == ExportFormat.JSON_LINES) {
+            ensureCapacity(1);
+            buffer.put((byte) '"');
+        }
+    }
+
+    private void writeText(String value) throws IOException {
+        if (format == ExportFormat.JSON_LINES) {
+            ensureCapacity(1);
+            buffer.put((byte) '"');
+            for (int i = 0; i < value.length(); i++) {
+                ensureCapacity(MAX_ENCODED_CHAR_LENGTH);
+                i = putJsonChar(buffer, value, i);
+            }
+            ensureCapacity(1);
+            buffer.put((byte) '"');
+        } else {
+            boolean quoted = requiresCsvQuoting(value);
+            if (quoted) {
+                ensureCapacity(1);
+                buffer.put((byte) '"');
+            }
+            for (int i = 0; i < value.length(); i++) {
+                ensureCapacity(MAX_ENCODED_CHAR_LENGTH);
+                char c = value.charAt(i);
+                if (c == '"') {
+                    buffer.put((byte) '"');
+                }
+                i = putUtf8Char(buffer, value, i);
+            }
+            if (quoted) {
+                ensureCapacity(1);
+                buffer.put((byte) '"');
+            }
+        }
+    }
+
+    private static boolean requiresCsvQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int putJsonChar(ByteBuffer target, String value, int index) {
+        char c = value.charAt(index);
+        switch (c) {
+            case '"' -> target.put((byte) '\\').put((byte) '"');
+            case '\\' -> target.put((byte) '\\').put((byte) '\\');
+            case '\n' -> target.put((byte) '\\').put((byte) 'n');
+            case '\r' -> target.put((byte) '\\').put((byte) 'r');
+            case '\t' -> target.put((byte) '\\').put((byte) 't');
+            case '\b' -> target.put((byte) '\\').put((byte) 'b');
+            case '\f' -> target.put((byte) '\\').put((byte) 'f');
+            default -> {
+                if (c < 0x20) {
+                    target.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(DIGITS[c >> 4]).put(DIGITS[c & 0xF]);
+                } else {
+                    return putUtf8Char(target, value, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Encodes the character at the given index as UTF-8, consuming a following low surrogate if present.
+     *
+     * @return The index of the last consumed character.
+     */
+    private static int putUtf8Char(ByteBuffer target, String value, int index) {
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            target.put((byte) c);
+        } else if (c < 0x800) {
+            target.put((byte) (0xC0 | (c >> 6)))
+                    .put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+            target.put((byte) (0xF0 | (codePoint >> 18)))
+                    .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                    .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                    .put((byte) (0x80 | (codePoint & 0x3F)));
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            target.put((byte) '?');
+        } else {
+            target.put((byte) (0xE0 | (c >> 12)))
+                    .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                    .put((byte) (0x80 | (c & 0x3F)));
+        }
+        return index;
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(LONG_MIN_VALUE);
+            return;
+        }
+        ensureCapacity(numberScratch.length);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int position = numberScratch.length;
+        do {
+            numberScratch[--position] = DIGITS[(int) (value % 10)];
+            value /= 10;
+        } while (value != 0);
+        buffer.put(numberScratch, position, numberScratch.length - position);
+    }
+
+    private void writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            writeAscii(date.toString());
+            return;
+        }
+        ensureCapacity(10);
+        putDigits(year / 100);
+        putDigits(year % 100);
+        buffer.put((byte) '-');
+        putDigits(date.getMonthValue());
+        buffer.put((byte) '-');
+        putDigits(date.getDayOfMonth());
+    }
+
+    private void writeTime(LocalTime time) throws IOException {
+        ensureCapacity(18);
+        putDigits(time.getHour());
+        buffer.put((byte) ':');
+        putDigits(time.getMinute());
+        buffer.put((byte) ':');
+        putDigits(time.getSecond());
+        int nanos = time.getNano();
+        if (nanos != 0) {
+            int digits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                digits--;
+            }
+            buffer.put((byte) '.');
+            for (int divisor = pow10(digits - 1); divisor > 0; divisor /= 10) {
+                buffer.put(DIGITS[(nanos / divisor) % 10]);
+            }
+        }
+    }
+
+    private void writeOffset(ZoneOffset offset) throws IOException {
+        int totalSeconds = offset.getTotalSeconds();
+        ensureCapacity(6);
+        if (totalSeconds == 0) {
+            buffer.put((byte) 'Z');
+            return;
+        }
+        buffer.put(totalSeconds < 0 ? (byte) '-' : (byte) '+');
+        int absoluteMinutes = Math.abs(totalSeconds) / 60;
+        putDigits(absoluteMinutes / 60);
+        buffer.put((byte) ':');
+        putDigits(absoluteMinutes % 60);
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private void putDigits(int twoDigitValue) {
+        buffer.put(DIGITS[twoDigitValue / 10]).put(DIGITS[twoDigitValue % 10]);
+    }
+
+    private void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            ensureCapacity(1);
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,16 @@
+package com.bondarenko.template.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.bondarenko.ConnectionAcquire")
+@Label("Connection Acquire")
+@Description("Time spent waiting for a connection from the DataSource")
+@Category({"JDBC Template"})
+final class ConnectionAcquireEvent extends Event {
+    @Label("DataSource")
+    String dataSource;
+}
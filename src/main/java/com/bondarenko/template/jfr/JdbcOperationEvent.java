@@ -0,0 +1,52 @@
+package com.bondarenko.template.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Timespan;
+
+/**
+ * Fields shared by the statement events. The event duration covers the whole template call, from connection
+ * acquisition until the result has been mapped; the phase fields break it down.
+ */
+@Category({"JDBC Template"})
+abstract class JdbcOperationEvent extends Event {
+    @Label("SQL")
+    @Description("The SQL text, truncated, or null when only the hash is recorded")
+    String sql;
+
+    @Label("SQL Hash")
+    @Description("Hash of the full SQL text, identifying the statement when the text is truncated or omitted")
+    int sqlHash;
+
+    @Label("Parameter Count")
+    int parameterCount;
+
+    @Label("Rows")
+    @Description("Rows returned by a query or affected by an update, or -1 when a ResultSetExtractor consumed the rows")
+    long rows;
+
+    @Label("Connection Acquire Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long acquireTime;
+
+    @Label("Prepare Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long prepareTime;
+
+    @Label("Execute Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executeTime;
+
+    @Label("Map Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long mapTime;
+
+    @Label("Failed")
+    boolean failed;
+
+    @Label("SQL Length")
+    @Description("Number of characters of the full SQL text")
+    int sqlLength;
+}
@@ -0,0 +1,11 @@
+package com.bondarenko.template.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.bondarenko.JdbcQuery")
+@Label("JDBC Query")
+@Description("A query executed through a JDBC template")
+final class JdbcQueryEvent extends JdbcOperationEvent {
+}
@@ -0,0 +1,11 @@
+package com.bondarenko.template.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.bondarenko.JdbcUpdate")
+@Label("JDBC Update")
+@Description("An update executed through a JDBC template")
+final class JdbcUpdateEvent extends JdbcOperationEvent {
+}
@@ -0,0 +1,174 @@
+package com.bondarenko.template.jfr;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Records one template call as Java Flight Recorder events: a {@code com.bondarenko.JdbcQuery} or
+ * {@code com.bondarenko.JdbcUpdate} event with the prepare, execute and map phases, and a
+ * {@code com.bondarenko.ConnectionAcquire} event for the connection checkout.
+ * <p>
+ * When the event type is disabled, which is the case unless a recording enables it, a shared no-op trace is
+ * returned and no clock is read, so the overhead is a single check per call. Events shorter than the recording's
+ * threshold are discarded by {@link jdk.jfr.Event#shouldCommit()} before any field is filled in.
+ * <p>
+ * The SQL text is truncated to {@link #setSqlTextLimit(int) a limit}; a limit of 0 records only its hash, for
+ * applications that inline sensitive literals into SQL.
+ */
+public class OperationTrace {
+    private static final OperationTrace DISABLED = new OperationTrace(null, null, 0);
+    private static volatile int sqlTextLimit = 256;
+
+    private final JdbcOperationEvent event;
+    private final String sql;
+    private final int parameterCount;
+    private long phaseStart;
+    private long acquireTime;
+    private long prepareTime;
+    private long executeTime;
+    private long rows;
+    private boolean completed;
+
+    private OperationTrace(JdbcOperationEvent event, String sql, int parameterCount) {
+        this.event = event;
+        this.sql = sql;
+        this.parameterCount = parameterCount;
+    }
+
+    /**
+     * Starts tracing a query.
+     *
+     * @param sql            The SQL of the query.
+     * @param parameterCount The number of bound parameters.
+     * @return The trace, or a no-op trace if query events are disabled.
+     */
+    public static OperationTrace query(String sql, int parameterCount) {
+        return start(new JdbcQueryEvent(), sql, parameterCount);
+    }
+
+    /**
+     * Starts tracing an update.
+     *
+     * @param sql            The SQL of the update.
+     * @param parameterCount The number of bound parameters.
+     * @return The trace, or a no-op trace if update events are disabled.
+     */
+    public static OperationTrace update(String sql, int parameterCount) {
+        return start(new JdbcUpdateEvent(), sql, parameterCount);
+    }
+
+    /**
+     * Sets the maximum number of SQL characters recorded in events.
+     *
+     * @param limit The maximum length, or 0 to record only the hash of the SQL. Defaults to 256.
+     */
+    public static void setSqlTextLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit should not be negative.");
+        }
+        sqlTextLimit = limit;
+    }
+
+    private static OperationTrace start(JdbcOperationEvent event, String sql, int parameterCount) {
+        if (!event.isEnabled()) {
+            return DISABLED;
+        }
+        OperationTrace trace = new OperationTrace(event, sql, parameterCount);
+        event.begin();
+        trace.phaseStart = System.nanoTime();
+        return trace;
+    }
+
+    private static Connection acquire(DataSource dataSource) throws SQLException {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        if (!event.isEnabled()) {
+            return dataSource.getConnection();
+        }
+        event.begin();
+        Connection connection = dataSource.getConnection();
+        event.end();
+        if (event.shouldCommit()) {
+            event.dataSource = dataSource.getClass().getName();
+            event.commit();
+        }
+        return connection;
+    }
+
+    /**
+     * Gets a connection for this operation and marks the end of the acquire phase.
+     *
+     * @param dataSource The DataSource to get the connection from.
+     * @return The connection.
+     * @throws SQLException If the connection cannot be obtained.
+     */
+    public Connection acquireConnection(DataSource dataSource) throws SQLException {
+        Connection connection = acquire(dataSource);
+        if (event != null) {
+            acquireTime = lap();
+        }
+        return connection;
+    }
+
+    /**
+     * Marks the end of the prepare phase.
+     */
+    public void prepared() {
+        if (event != null) {
+            prepareTime = lap();
+        }
+    }
+
+    /**
+     * Marks the end of the execute phase; the time until {@link #end()} is the map phase.
+     */
+    public void executed() {
+        if (event != null) {
+            executeTime = lap();
+        }
+    }
+
+    /**
+     * Records the number of rows returned or affected, which also marks the operation as successful.
+     *
+     * @param rows The number of rows.
+     */
+    public void completed(long rows) {
+        if (event != null) {
+            this.rows = rows;
+            this.completed = true;
+        }
+    }
+
+    /**
+     * Ends the operation and commits its event if it is long enough for the recording.
+     */
+    public void end() {
+        if (event == null) {
+            return;
+        }
+        long mapTime = executeTime == 0 ? 0 : lap();
+        event.end();
+        if (event.shouldCommit()) {
+            int limit = sqlTextLimit;
+            event.sql = limit == 0 ? null : sql.length() <= limit ? sql : sql.substring(0, limit);
+            event.sqlHash = sql.hashCode();
+            event.sqlLength = sql.length();
+            event.parameterCount = parameterCount;
+            event.rows = rows;
+            event.acquireTime = acquireTime;
+            event.prepareTime = prepareTime;
+            event.executeTime = executeTime;
+            event.mapTime = mapTime;
+            event.failed = !completed;
+            event.commit();
+        }
+    }
+
+    private long lap() {
+        long now = System.nanoTime();
+        long elapsed = now - phaseStart;
+        phaseStart = now;
+        return elapsed;
+    }
+}
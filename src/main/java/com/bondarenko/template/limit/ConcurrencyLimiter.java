@@ -0,0 +1,329 @@
+package com.bondarenko.template.limit;
+
+import com.bondarenko.exception.LimitExceededException;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Limits the number of calls in flight against the database and adapts the limit to the observed latency, so the
+ * database is kept near its capacity instead of building a queue that makes every call slow.
+ * <p>
+ * The limit follows the TCP Vegas scheme: the lowest latency seen approximates the latency without queueing, and
+ * {@code limit * (1 - minLatency / latency)} estimates how many calls are queued. While that estimate is below a
+ * small threshold, which grows with the logarithm of the limit, the limit increases; when it is above a larger
+ * threshold the limit decreases, and a timed out or dropped call cuts it by 10%. The minimum latency is
+ * re-measured at random intervals so the limit follows a database whose unloaded latency has changed.
+ * <p>
+ * Calls are grouped into partitions with separate limits, by default one per distinct SQL text, so slow statements
+ * cannot use up the capacity of the others. Each partition also keeps its own minimum latency: a partition shared by
+ * a fast lookup and a slow report would compare the report's latency with the lookup's and read it as queueing,
+ * shrinking the limit of both. {@link #statementType(String)} can be set as partitioner for fewer, coarser
+ * partitions when the statements of each type have similar latencies. A call over the limit of its partition is
+ * rejected immediately with a {@link LimitExceededException} instead of waiting.
+ * <p>
+ * The partition limits adapt independently, so together they can admit more calls than the database or the
+ * connection pool can serve. {@link #setTotalLimit(int)} caps the calls in flight over all partitions; a call is
+ * admitted only if both its partition and the total are below their limits.
+ * <p>
+ * Settings apply to partitions created after they are set, so they should be set before the limiter is used.
+ */
+public class ConcurrencyLimiter {
+    private static final int MAX_PARTITIONS = 64;
+    private static final String OVERFLOW_PARTITION = "OTHER";
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger totalInFlight = new AtomicInteger();
+    private volatile int totalLimit = Integer.MAX_VALUE;
+    private Function<String, String> partitioner = Function.identity();
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+
+    /**
+     * Sets the function that assigns a SQL statement to its partition. Defaults to the SQL text itself. At most 64
+     * partitions are created; further partition names share one overflow partition.
+     *
+     * @param partitioner The function returning the partition name of a SQL statement.
+     */
+    public void setPartitioner(Function<String, String> partitioner) {
+        ValidationUtils.validateNotNull(partitioner, "Partitioner");
+        this.partitioner = partitioner;
+    }
+
+    /**
+     * Sets the limits of new partitions.
+     *
+     * @param initialLimit The limit a partition starts with.
+     * @param minLimit     The lowest limit a partition can adapt to.
+     * @param maxLimit     The highest limit a partition can adapt to.
+     */
+    public void setLimits(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits should be positive with minLimit <= initialLimit <= maxLimit.");
+        }
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Sets the highest number of calls in flight over all partitions. Unlimited by default.
+     *
+     * @param totalLimit The total limit.
+     */
+    public void setTotalLimit(int totalLimit) {
+        if (totalLimit <= 0) {
+            throw new IllegalArgumentException("totalLimit should be positive.");
+        }
+        this.totalLimit = totalLimit;
+    }
+
+    /**
+     * Admits a call of the given SQL if both its partition and the total are below their limits.
+     *
+     * @param sql The SQL of the call.
+     * @return The permit, which must be released exactly once when the call ends.
+     * @throws LimitExceededException If the partition or the total is at its limit.
+     */
+    public Permit acquire(String sql) {
+        Partition partition = partitionOf(sql);
+        int current;
+        do {
+            current = totalInFlight.get();
+            if (current >= totalLimit) {
+                partition.rejected.increment();
+                throw new LimitExceededException("Total concurrency limit of " + totalLimit + " reached");
+            }
+        } while (!totalInFlight.compareAndSet(current, current + 1));
+        try {
+            return partition.acquire(totalInFlight);
+        } catch (LimitExceededException e) {
+            totalInFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    Partition partitionOf(String sql) {
+        return getPartition(partitioner.apply(sql));
+    }
+
+    /**
+     * Returns the partition of the given name, creating it if it does not exist yet.
+     *
+     * @param name The partition name.
+     * @return The partition.
+     */
+    public Partition getPartition(String name) {
+        Partition partition = partitions.get(name);
+        if (partition != null) {
+            return partition;
+        }
+        // Checking the bound and creating the partition must be one step, or concurrent first calls exceed it
+        synchronized (partitions) {
+            partition = partitions.get(name);
+            if (partition != null) {
+                return partition;
+            }
+            if (partitions.size() >= MAX_PARTITIONS) {
+                name = OVERFLOW_PARTITION;
+            }
+            return partitions.computeIfAbsent(name, key -> new Partition(key, initialLimit, minLimit, maxLimit));
+        }
+    }
+
+    /**
+     * Returns the partitions created so far, whose limit and in-flight count can be exported as gauges.
+     *
+     * @return The partitions.
+     */
+    public Collection<Partition> getPartitions() {
+        return Collections.unmodifiableCollection(partitions.values());
+    }
+
+    public int getTotalLimit() {
+        return totalLimit;
+    }
+
+    public int getTotalInFlight() {
+        return totalInFlight.get();
+    }
+
+    /**
+     * Partitioner that groups statements by their first keyword, such as SELECT or UPDATE.
+     *
+     * @param sql The SQL of the call.
+     * @return The upper-case first keyword, or the overflow partition name if there is none.
+     */
+    public static String statementType(String sql) {
+        int start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return start == end ? OVERFLOW_PARTITION : sql.substring(start, end).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * A group of calls sharing one adaptive limit.
+     */
+    public static final class Partition {
+        private final String name;
+        private final int minLimit;
+        private final int maxLimit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+        private volatile int limit;
+        private double estimatedLimit;
+        private long minLatencyNanos;
+        private long samplesUntilProbe;
+
+        private Partition(String name, int initialLimit, int minLimit, int maxLimit) {
+            this.name = name;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.limit = initialLimit;
+            this.estimatedLimit = initialLimit;
+            this.samplesUntilProbe = nextProbe(initialLimit);
+        }
+
+        private Permit acquire(AtomicInteger totalInFlight) {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limit) {
+                    rejected.increment();
+                    throw new LimitExceededException("Concurrency limit of " + limit + " reached for " + name);
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return new Permit(this, totalInFlight, current + 1);
+        }
+
+        /**
+         * Updates the limit with one latency sample.
+         *
+         * @param latencyNanos The latency of the call.
+         * @param inFlight     The number of calls in flight when the call started, including itself.
+         * @param dropped      true if the call timed out or failed because of overload.
+         */
+        synchronized void update(long latencyNanos, int inFlight, boolean dropped) {
+            if (dropped) {
+                setEstimatedLimit(estimatedLimit * BACKOFF_RATIO);
+                return;
+            }
+            if (--samplesUntilProbe <= 0) {
+                minLatencyNanos = latencyNanos;
+                samplesUntilProbe = nextProbe(limit);
+                return;
+            }
+            if (minLatencyNanos == 0 || latencyNanos < minLatencyNanos) {
+                minLatencyNanos = latencyNanos;
+                return;
+            }
+            if (inFlight * 2 < estimatedLimit) {
+                // Too few calls to tell whether the limit is right
+                return;
+            }
+            double queueSize = Math.ceil(estimatedLimit * (1 - (double) minLatencyNanos / latencyNanos));
+            double threshold = Math.max(1, Math.log10(estimatedLimit));
+            double alpha = 3 * threshold;
+            double beta = 6 * threshold;
+            if (queueSize <= threshold) {
+                setEstimatedLimit(estimatedLimit + beta);
+            } else if (queueSize < alpha) {
+                setEstimatedLimit(estimatedLimit + threshold);
+            } else if (queueSize > beta) {
+                setEstimatedLimit(estimatedLimit - threshold);
+            }
+        }
+
+        private void setEstimatedLimit(double newLimit) {
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            limit = (int) estimatedLimit;
+        }
+
+        private static long nextProbe(int limit) {
+            return (long) (PROBE_MULTIPLIER * limit * (0.5 + ThreadLocalRandom.current().nextDouble()));
+        }
+
+        private void release(Permit permit, boolean sample, boolean dropped) {
+            inFlight.decrementAndGet();
+            if (sample) {
+                update(System.nanoTime() - permit.startNanos, permit.inFlight, dropped);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+    }
+
+    /**
+     * Admission of one call. Exactly one of the release methods must be called when the call ends.
+     */
+    public static final class Permit {
+        private final Partition partition;
+        private final AtomicInteger totalInFlight;
+        private final int inFlight;
+        private final long startNanos = System.nanoTime();
+
+        private Permit(Partition partition, AtomicInteger totalInFlight, int inFlight) {
+            this.partition = partition;
+            this.totalInFlight = totalInFlight;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * Releases the permit of a successful call and uses its latency to adapt the limit.
+         */
+        public void onSuccess() {
+            release(true, false);
+        }
+
+        /**
+         * Releases the permit of a call that timed out or failed because the database is overloaded, which
+         * lowers the limit.
+         */
+        public void onDropped() {
+            release(true, true);
+        }
+
+        /**
+         * Releases the permit of a call whose latency says nothing about the load, such as one that failed on a
+         * constraint violation.
+         */
+        public void onIgnore() {
+            release(false, false);
+        }
+
+        private void release(boolean sample, boolean dropped) {
+            totalInFlight.decrementAndGet();
+            partition.release(this, sample, dropped);
+        }
+    }
+}
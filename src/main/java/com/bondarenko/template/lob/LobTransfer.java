@@ -0,0 +1,64 @@
+package com.bondarenko.template.lob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copies LOB streams to their destination through a buffer reused by every transfer of the same thread, so reading
+ * a large object allocates nothing proportional to its size and concurrent transfers each need only one buffer.
+ */
+public final class LobTransfer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<byte[]> BYTE_BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final ThreadLocal<char[]> CHAR_BUFFERS = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE / 2]);
+
+    private LobTransfer() {
+    }
+
+    /**
+     * Copies the remaining content of the stream to the channel.
+     *
+     * @param source The stream to read. It is not closed.
+     * @param target The channel to write to. It is not closed.
+     * @return The number of copied bytes.
+     * @throws IOException If reading or writing fails.
+     */
+    public static long copy(InputStream source, WritableByteChannel target) throws IOException {
+        byte[] bytes = BYTE_BUFFERS.get();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long total = 0;
+        int read;
+        while ((read = source.read(bytes)) != -1) {
+            buffer.limit(read).position(0);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Copies the remaining content of the reader to the writer.
+     *
+     * @param source The reader to read. It is not closed.
+     * @param target The writer to write to. It is flushed but not closed.
+     * @return The number of copied characters.
+     * @throws IOException If reading or writing fails.
+     */
+    public static long copy(Reader source, Writer target) throws IOException {
+        char[] chars = CHAR_BUFFERS.get();
+        long total = 0;
+        int read;
+        while ((read = source.read(chars)) != -1) {
+            target.write(chars, 0, read);
+            total += read;
+        }
+        target.flush();
+        return total;
+    }
+}
@@ -0,0 +1,108 @@
+package com.bondarenko.template.lob;
+
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A BLOB or CLOB parameter whose content is streamed to the database instead of being passed as one array.
+ * <p>
+ * Pass it as a parameter of {@code update} or {@code query} and it is bound with {@code setBinaryStream} or
+ * {@code setCharacterStream}, so the driver reads the content in chunks while sending it and the full object never
+ * has to be on the heap. The length must be known up front, which lets the driver size the transfer without
+ * buffering the stream. A stream can only be read once, so a SqlLob must not be reused for a second statement.
+ */
+public final class SqlLob {
+    private final InputStream binaryStream;
+    private final Reader characterStream;
+    private final long length;
+
+    private SqlLob(InputStream binaryStream, Reader characterStream, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length should not be negative.");
+        }
+        this.binaryStream = binaryStream;
+        this.characterStream = characterStream;
+        this.length = length;
+    }
+
+    /**
+     * Creates a BLOB parameter read from the given stream.
+     *
+     * @param stream The content. It is read by the driver and not closed.
+     * @param length The number of bytes to read from the stream.
+     * @return The BLOB parameter.
+     */
+    public static SqlLob binary(InputStream stream, long length) {
+        ValidationUtils.validateNotNull(stream, "InputStream");
+        return new SqlLob(stream, null, length);
+    }
+
+    /**
+     * Creates a BLOB parameter read from the given channel, for example a FileChannel.
+     *
+     * @param channel The content. It is read by the driver and not closed.
+     * @param length  The number of bytes to read from the channel.
+     * @return The BLOB parameter.
+     */
+    public static SqlLob binary(ReadableByteChannel channel, long length) {
+        ValidationUtils.validateNotNull(channel, "Channel");
+        return new SqlLob(Channels.newInputStream(channel), null, length);
+    }
+
+    /**
+     * Creates a CLOB parameter read from the given reader.
+     *
+     * @param reader The content. It is read by the driver and not closed.
+     * @param length The number of characters to read from the reader.
+     * @return The CLOB parameter.
+     */
+    public static SqlLob character(Reader reader, long length) {
+        ValidationUtils.validateNotNull(reader, "Reader");
+        return new SqlLob(null, reader, length);
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public boolean isBinary() {
+        return binaryStream != null;
+    }
+
+    /**
+     * Binds the content as the given parameter of the statement.
+     *
+     * @param statement The statement.
+     * @param index     The 1-based parameter index.
+     * @throws SQLException If the driver rejects the stream.
+     */
+    public void bind(PreparedStatement statement, int index) throws SQLException {
+        if (binaryStream != null) {
+            statement.setBinaryStream(index, binaryStream, length);
+        } else {
+            statement.setCharacterStream(index, characterStream, length);
+        }
+    }
+
+    /**
+     * Binds the given parameter, streaming it when it is a SqlLob and using {@code setObject} otherwise.
+     *
+     * @param statement The statement.
+     * @param index     The 1-based parameter index.
+     * @param value     The parameter value.
+     * @throws SQLException If the driver rejects the value.
+     */
+    public static void setParameter(PreparedStatement statement, int index, Object value) throws SQLException {
+        if (value instanceof SqlLob) {
+            ((SqlLob) value).bind(statement, index);
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.bondarenko.template.poll;
+
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.JdbcTemplate;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Tails a table by a (watermark column, tiebreak key) pair and delivers new or changed rows to a consumer in
+ * bounded batches.
+ * <p>
+ * Each poll reads at most one batch with
+ * {@code WHERE watermark >= ? AND (watermark > ? OR key > ?) ORDER BY watermark, key}, so rows sharing a watermark
+ * are neither skipped nor delivered twice. The leading {@code watermark >= ?} gives the database a range it can seek
+ * to on an index over (watermark, key), so only rows from the checkpoint on are scanned; the equivalent predicate
+ * starting with an OR is often executed as a full scan. The checkpoint is saved
+ * to the {@link CheckpointStore} after the consumer has accepted the batch, which gives at-least-once delivery:
+ * a batch whose consumer failed is read again by the next poll.
+ * <p>
+ * When started, the poller runs on its own daemon thread and adapts its interval to the change rate: a full batch
+ * is followed immediately by the next poll, a partial batch halves the interval, and an empty poll doubles it, all
+ * within the configured bounds. The watermark column must only grow as rows change, e.g. an update timestamp or
+ * a sequence. Rows committed late with a watermark below the checkpoint are not seen.
+ *
+ * @param <T> The type of the delivered rows.
+ */
+public class ChangePoller<T> {
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RowMapper<T> rowMapper;
+    private final Consumer<List<T>> consumer;
+    private final CheckpointStore checkpointStore;
+    private final String watermarkColumn;
+    private final String keyColumn;
+    private final String initialSql;
+    private final String incrementalSql;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Duration minPollInterval = Duration.ofMillis(100);
+    private Duration maxPollInterval = Duration.ofSeconds(10);
+    private volatile Thread worker;
+    private volatile boolean running;
+    private volatile RuntimeException lastFailure;
+    private volatile long currentIntervalNanos;
+
+    /**
+     * Constructs a new ChangePoller.
+     *
+     * @param jdbcTemplate    The template used to query the table.
+     * @param table           The table to tail.
+     * @param watermarkColumn The column that grows whenever a row is inserted or changed.
+     * @param keyColumn       The unique key column ordering rows with the same watermark.
+     * @param rowMapper       The RowMapper to use for mapping each row.
+     * @param consumer        Receives every batch of changed rows, in watermark order.
+     * @param checkpointStore The store of the poller's position.
+     */
+    public ChangePoller(JdbcTemplate jdbcTemplate, String table, String watermarkColumn, String keyColumn,
+                        RowMapper<T> rowMapper, Consumer<List<T>> consumer, CheckpointStore checkpointStore) {
+        ValidationUtils.validateNotNull(jdbcTemplate, "JdbcTemplate");
+        ValidationUtils.validateIdentifier(table, "Table");
+        ValidationUtils.validateIdentifier(watermarkColumn, "Watermark column");
+        ValidationUtils.validateIdentifier(keyColumn, "Key column");
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateNotNull(consumer, "Consumer");
+        ValidationUtils.validateNotNull(checkpointStore, "Checkpoint store");
+        this.jdbcTemplate = jdbcTemplate;
+        this.rowMapper = rowMapper;
+        this.consumer = consumer;
+        this.checkpointStore = checkpointStore;
+        this.watermarkColumn = watermarkColumn;
+        this.keyColumn = keyColumn;
+        String orderBy = " ORDER BY " + watermarkColumn + ", " + keyColumn;
+        this.initialSql = "SELECT * FROM " + table + orderBy;
+        this.incrementalSql = "SELECT * FROM " + table + " WHERE " + watermarkColumn + " >= ? AND ("
+                + watermarkColumn + " > ? OR " + keyColumn + " > ?)" + orderBy;
+    }
+
+    /**
+     * Sets the maximum number of rows delivered in one batch.
+     *
+     * @param batchSize The batch size. Defaults to 500.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize should be positive.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the bounds of the adaptive poll interval.
+     *
+     * @param minPollInterval The interval while changes keep arriving. Defaults to 100 milliseconds.
+     * @param maxPollInterval The interval reached after repeated empty polls. Defaults to 10 seconds.
+     */
+    public void setPollInterval(Duration minPollInterval, Duration maxPollInterval) {
+        ValidationUtils.validateNotNull(minPollInterval, "Minimum poll interval");
+        ValidationUtils.validateNotNull(maxPollInterval, "Maximum poll interval");
+        if (minPollInterval.isNegative() || minPollInterval.isZero() || maxPollInterval.compareTo(minPollInterval) < 0) {
+            throw new IllegalArgumentException("Poll intervals should be positive and min should not exceed max.");
+        }
+        this.minPollInterval = minPollInterval;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    /**
+     * Reads the next batch after the saved checkpoint, delivers it to the consumer and saves the new checkpoint.
+     *
+     * @return The number of delivered rows; equal to the batch size if more rows may be waiting.
+     * @throws com.bondarenko.exception.DataAccessException If there is an error during the database operation.
+     */
+    public int pollOnce() {
+        Checkpoint checkpoint = checkpointStore.load();
+        Batch<T> batch = checkpoint == null
+                ? jdbcTemplate.withMaxRows(batchSize).extract(initialSql, this::readBatch)
+                : jdbcTemplate.withMaxRows(batchSize).extract(incrementalSql, this::readBatch,
+                checkpoint.getWatermark(), checkpoint.getWatermark(), checkpoint.getKey());
+        if (batch.rows.isEmpty()) {
+            return 0;
+        }
+        consumer.accept(batch.rows);
+        checkpointStore.save(batch.last);
+        return batch.rows.size();
+    }
+
+    /**
+     * Starts polling on a daemon thread.
+     *
+     * @throws IllegalStateException If the poller is already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("ChangePoller is already running.");
+        }
+        running = true;
+        currentIntervalNanos = minPollInterval.toNanos();
+        worker = new Thread(this::run, "change-poller");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops polling and waits for a poll in progress to finish.
+     */
+    public synchronized void stop() {
+        running = false;
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        worker = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the failure of the most recent poll of the background thread.
+     *
+     * @return The failure, or null if the most recent poll succeeded.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Returns the interval the background thread currently waits between polls.
+     *
+     * @return The current poll interval.
+     */
+    public Duration getCurrentPollInterval() {
+        return Duration.ofNanos(currentIntervalNanos);
+    }
+
+    private void run() {
+        long minNanos = minPollInterval.toNanos();
+        long maxNanos = maxPollInterval.toNanos();
+        while (running) {
+            long waitNanos;
+            try {
+                int delivered = pollOnce();
+                lastFailure = null;
+                if (delivered == batchSize) {
+                    currentIntervalNanos = minNanos;
+                    continue;
+                }
+                currentIntervalNanos = delivered > 0
+                        ? Math.max(minNanos, currentIntervalNanos / 2)
+                        : Math.min(maxNanos, currentIntervalNanos * 2);
+                waitNanos = currentIntervalNanos;
+            } catch (RuntimeException e) {
+                lastFailure = e;
+                waitNanos = maxNanos;
+            }
+            long deadline = System.nanoTime() + waitNanos;
+            long remaining;
+            while (running && (remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+        }
+    }
+
+    private Batch<T> readBatch(ResultSet resultSet) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        Object watermark = null;
+        Object key = null;
+        while (resultSet.next()) {
+            rows.add(rowMapper.map(resultSet));
+            watermark = resultSet.getObject(watermarkColumn);
+            key = resultSet.getObject(keyColumn);
+        }
+        return new Batch<>(rows, rows.isEmpty() ? null : new Checkpoint(watermark, key));
+    }
+
+    private static class Batch<T> {
+        private final List<T> rows;
+        private final Checkpoint last;
+
+        private Batch(List<T> rows, Checkpoint last) {
+            this.rows = rows;
+            this.last = last;
+        }
+    }
+}
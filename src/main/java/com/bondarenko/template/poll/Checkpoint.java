@@ -0,0 +1,49 @@
+package com.bondarenko.template.poll;
+
+import java.util.Objects;
+
+/**
+ * Position of a {@link ChangePoller} in its table: the watermark and tiebreak key of the last delivered row.
+ */
+public final class Checkpoint {
+    private final Object watermark;
+    private final Object key;
+
+    public Checkpoint(Object watermark, Object key) {
+        if (watermark == null || key == null) {
+            throw new IllegalArgumentException("watermark and key should not be null.");
+        }
+        this.watermark = watermark;
+        this.key = key;
+    }
+
+    public Object getWatermark() {
+        return watermark;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Checkpoint)) {
+            return false;
+        }
+        Checkpoint that = (Checkpoint) o;
+        return watermark.equals(that.watermark) && key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(watermark, key);
+    }
+
+    @Override
+    public String toString() {
+        return "Checkpoint{watermark=" + watermark + ", key=" + key + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package com.bondarenko.template.poll;
+
+/**
+ * Persists the checkpoint of a {@link ChangePoller}, so that a restarted poller resumes after the last delivered
+ * row instead of re-reading the table.
+ */
+public interface CheckpointStore {
+    /**
+     * Loads the last saved checkpoint.
+     *
+     * @return The checkpoint, or null to start from the beginning of the table.
+     */
+    Checkpoint load();
+
+    /**
+     * Saves a checkpoint after its batch has been delivered.
+     *
+     * @param checkpoint The checkpoint to save.
+     */
+    void save(Checkpoint checkpoint);
+}
@@ -0,0 +1,25 @@
+package com.bondarenko.template.poll;
+
+/**
+ * CheckpointStore keeping the checkpoint in memory only, for consumers that may re-read the table after a restart.
+ */
+public class InMemoryCheckpointStore implements CheckpointStore {
+    private volatile Checkpoint checkpoint;
+
+    public InMemoryCheckpointStore() {
+    }
+
+    public InMemoryCheckpointStore(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public Checkpoint load() {
+        return checkpoint;
+    }
+
+    @Override
+    public void save(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+}
@@ -0,0 +1,43 @@
+package com.bondarenko.template.timeout;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed point in time by which an operation has to complete, measured on the monotonic clock.
+ */
+public class Deadline {
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline the given duration from now.
+     *
+     * @param timeout The time budget of the operation.
+     * @return The deadline.
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    /**
+     * Returns the remaining time in whole seconds rounded up, as expected by {@code Statement.setQueryTimeout}.
+     *
+     * @return The remaining seconds, at least 1.
+     */
+    public int remainingSecondsRoundedUp() {
+        long seconds = (remainingNanos() + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, seconds));
+    }
+}
@@ -0,0 +1,236 @@
+package com.bondarenko.template.timeout;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer optimized for large numbers of short timeouts that are usually cancelled before they fire.
+ * Timeouts are kept in a wheel of buckets, one per tick, so scheduling and cancelling are O(1) and only the bucket
+ * of the current tick is examined on each tick. Tasks fire with a precision of one tick and run on the single timer
+ * thread, so they must be short and must not block.
+ * <p>
+ * The timer thread is a daemon thread started on the first schedule and ended by {@link #stop()}.
+ */
+public class HashedWheelTimer {
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean stopped;
+    private long tick;
+
+    /**
+     * Constructs a new HashedWheelTimer.
+     *
+     * @param tickDuration  The precision of the timer.
+     * @param ticksPerWheel The number of buckets, rounded up to a power of two.
+     * @param threadName    The name of the timer thread.
+     */
+    public HashedWheelTimer(Duration tickDuration, int ticksPerWheel, String threadName) {
+        if (tickDuration.isNegative() || tickDuration.isZero() || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tickDuration and ticksPerWheel should be positive.");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1 == 0 ? 1 : ticksPerWheel - 1) << 1;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     *
+     * @param task  The task to run on the timer thread.
+     * @param delay The delay after which the task runs.
+     * @param unit  The unit of the delay.
+     * @return The handle used to cancel the task.
+     * @throws IllegalStateException If the timer has been stopped.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("HashedWheelTimer is stopped.");
+        }
+        if (started.compareAndSet(false, true)) {
+            worker.start();
+        }
+        Timeout timeout = new Timeout(this, task, System.nanoTime() - startNanos + unit.toNanos(delay));
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the timer thread and waits for it to finish. Tasks that have not run yet are discarded.
+     */
+    public void stop() {
+        stopped = true;
+        if (started.compareAndSet(false, true) || Thread.currentThread() == worker) {
+            return;
+        }
+        LockSupport.unpark(worker);
+        boolean interrupted = false;
+        while (worker.isAlive()) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (!stopped) {
+            long tickDeadline = startNanos + tickNanos * (tick + 1);
+            long sleepNanos;
+            while ((sleepNanos = tickDeadline - System.nanoTime()) > 0 && !stopped) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (stopped) {
+                return;
+            }
+            removeCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire(System.nanoTime() - startNanos);
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == STATE_CANCELLED) {
+                continue;
+            }
+            long expirationTick = timeout.deadlineNanos / tickNanos;
+            timeout.remainingRounds = (expirationTick - tick) / wheel.length;
+            long bucketTick = Math.max(expirationTick, tick);
+            wheel[(int) (bucketTick & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancels the task if it has not run yet.
+         *
+         * @return true if the task will not run; false if it has already run.
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                timer.cancelled.offer(this);
+                return true;
+            }
+            return state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts of one wheel slot, only accessed by the timer thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private void expire(long nowNanos) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= nowNanos) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                        try {
+                            timeout.task.run();
+                        } catch (RuntimeException e) {
+                            // A failing task must not stop the timer thread
+                        }
+                    }
+                } else if (timeout.state.get() == STATE_CANCELLED) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            } else {
+                tail = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.bondarenko.template.validation;
 
 
+import com.bondarenko.mapper.MemoryBudget;
 import com.bondarenko.mapper.RowMapper;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 public class ValidationUtils {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)*");
+
     private ValidationUtils() {
     }
 
@@ -57,4 +61,45 @@ public class ValidationUtils {
             throw new IllegalArgumentException("RowMapper should not be null.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Validates the given argument to ensure it is not null.
+     *
+     * @param value The argument to be validated.
+     * @param name  The name of the argument used in the exception message.
+     * @throws IllegalArgumentException If value is null.
+     */
+    public static void validateNotNull(Object value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException(name + " should not be null.");
+        }
+    }
+
+    /**
+     * Validates that a memory budget set for a whole template fails the query when exceeded. Such a budget applies
+     * to methods returning a plain list, whose callers could not tell that a truncating budget dropped rows.
+     *
+     * @param memoryBudget The memory budget to be validated, or null for no limit.
+     * @throws IllegalArgumentException If the budget truncates instead of failing.
+     */
+    public static void validateFailingMemoryBudget(MemoryBudget memoryBudget) {
+        if (memoryBudget != null && memoryBudget.getOverflowAction() != MemoryBudget.OverflowAction.FAIL) {
+            throw new IllegalArgumentException("A truncating memory budget should be passed to the query that returns a BoundedResultList.");
+        }
+    }
+
+    /**
+     * Validates a table or column name that is going to be inlined into generated SQL, allowing only plain and
+     * schema-qualified identifiers so that no SQL can be injected through it.
+     *
+     * @param identifier The identifier to be validated.
+     * @param name       The name of the argument used in the exception message.
+     * @throws IllegalArgumentException If identifier is null or not a plain identifier.
+     */
+    public static void validateIdentifier(String identifier, String name) {
+        validateNotNull(identifier, name);
+        if (!IDENTIFIER.matcher(identifier).matches()) {
+            throw new IllegalArgumentException(name + " '" + identifier + "' is not a valid SQL identifier.");
+        }
+    }
+}
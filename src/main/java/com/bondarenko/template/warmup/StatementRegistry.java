@@ -0,0 +1,141 @@
+package com.bondarenko.template.warmup;
+
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SQL an application is going to run, declared up front so it can be parsed, prepared and exercised before
+ * the first real request arrives. Statements may use named ({@code :name}) or positional ({@code ?}) parameters.
+ * A statement registered with sample parameters can also be executed synthetically during warmup; updates are
+ * always rolled back.
+ * <p>
+ * Registering the same SQL again replaces the earlier registration.
+ */
+public class StatementRegistry {
+    private final Map<String, RegisteredStatement> statements = new LinkedHashMap<>();
+
+    /**
+     * Registers a statement that is only parsed and prepared during warmup.
+     *
+     * @param sql The SQL statement.
+     * @return This registry.
+     */
+    public StatementRegistry register(String sql) {
+        return add(sql, null, null, null);
+    }
+
+    /**
+     * Registers a statement with named parameters that is also executed with the given sample values.
+     *
+     * @param sql          The SQL statement.
+     * @param sampleParams The sample values of the named parameters.
+     * @return This registry.
+     */
+    public StatementRegistry register(String sql, Map<String, ?> sampleParams) {
+        ValidationUtils.validateParamMap(sampleParams);
+        return add(sql, sampleParams, null, null);
+    }
+
+    /**
+     * Registers a query with named parameters that is also executed with the given sample values, mapping every
+     * returned row with the given RowMapper.
+     *
+     * @param sql          The SQL query.
+     * @param sampleParams The sample values of the named parameters.
+     * @param rowMapper    The RowMapper the application uses for this query.
+     * @return This registry.
+     */
+    public StatementRegistry register(String sql, Map<String, ?> sampleParams, RowMapper<?> rowMapper) {
+        ValidationUtils.validateParamMap(sampleParams);
+        ValidationUtils.validateRowMapper(rowMapper);
+        return add(sql, sampleParams, null, rowMapper);
+    }
+
+    /**
+     * Registers a query with positional parameters that is also executed with the given sample values, mapping
+     * every returned row with the given RowMapper.
+     *
+     * @param sql        The SQL query.
+     * @param rowMapper  The RowMapper the application uses for this query.
+     * @param sampleArgs The sample values of the positional parameters.
+     * @return This registry.
+     */
+    public StatementRegistry register(String sql, RowMapper<?> rowMapper, Object... sampleArgs) {
+        ValidationUtils.validateRowMapper(rowMapper);
+        ValidationUtils.validateParamArray(sampleArgs);
+        return add(sql, null, sampleArgs, rowMapper);
+    }
+
+    /**
+     * Registers a statement with positional parameters that is also executed with the given sample values.
+     *
+     * @param sql        The SQL statement.
+     * @param sampleArgs The sample values of the positional parameters.
+     * @return This registry.
+     */
+    public StatementRegistry registerUpdate(String sql, Object... sampleArgs) {
+        ValidationUtils.validateParamArray(sampleArgs);
+        return add(sql, null, sampleArgs, null);
+    }
+
+    public List<RegisteredStatement> getStatements() {
+        return new ArrayList<>(statements.values());
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private StatementRegistry add(String sql, Map<String, ?> sampleParams, Object[] sampleArgs, RowMapper<?> rowMapper) {
+        ValidationUtils.validateSql(sql);
+        statements.put(sql, new RegisteredStatement(sql, sampleParams, sampleArgs, rowMapper));
+        return this;
+    }
+
+    /**
+     * A statement of a {@link StatementRegistry} together with its optional sample parameters.
+     */
+    public static final class RegisteredStatement {
+        private final String sql;
+        private final Map<String, ?> sampleParams;
+        private final Object[] sampleArgs;
+        private final RowMapper<?> rowMapper;
+
+        private RegisteredStatement(String sql, Map<String, ?> sampleParams, Object[] sampleArgs, RowMapper<?> rowMapper) {
+            this.sql = sql;
+            this.sampleParams = sampleParams;
+            this.sampleArgs = sampleArgs;
+            this.rowMapper = rowMapper;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public Map<String, ?> getSampleParams() {
+            return sampleParams;
+        }
+
+        public Object[] getSampleArgs() {
+            return sampleArgs;
+        }
+
+        public RowMapper<?> getRowMapper() {
+            return rowMapper;
+        }
+
+        /**
+         * Tells whether the statement can be executed synthetically.
+         *
+         * @return true if sample parameters were registered.
+         */
+        public boolean hasSample() {
+            return sampleParams != null || sampleArgs != null;
+        }
+    }
+}
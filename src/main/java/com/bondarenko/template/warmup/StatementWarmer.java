@@ -0,0 +1,221 @@
+package com.bondarenko.template.warmup;
+
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.ParsedSql;
+import com.bondarenko.template.timeout.Deadline;
+import com.bondarenko.template.validation.ValidationUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms up the statements of a {@link StatementRegistry} before the application starts serving requests.
+ * <p>
+ * Every statement is parsed once, then prepared on each of the requested number of connections. The connections
+ * are checked out concurrently and held until all of them are done, so a pool hands out distinct connections and
+ * each of them gets its server-side and driver-side statement caches filled. Statements registered with sample
+ * parameters are additionally executed the configured number of times on every connection, with their rows mapped
+ * by the registered RowMapper, so the driver and mapping code get JIT-compiled. Synthetic executions run in a
+ * transaction that is always rolled back.
+ * <p>
+ * The whole run is bounded by a time limit; whatever has not been warmed by then is skipped and the report is
+ * marked as timed out. Failures never abort the warmup, they are collected in the {@link WarmupReport}.
+ */
+public class StatementWarmer {
+    private final DataSource dataSource;
+    private int connections = 1;
+    private int syntheticExecutions;
+    private Duration timeLimit = Duration.ofSeconds(30);
+
+    public StatementWarmer(DataSource dataSource) {
+        ValidationUtils.validateNotNull(dataSource, "DataSource");
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Sets the number of connections to warm, normally the size of the connection pool.
+     *
+     * @param connections The number of connections. Defaults to 1.
+     */
+    public void setConnections(int connections) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections should be positive.");
+        }
+        this.connections = connections;
+    }
+
+    /**
+     * Sets how many times each statement with sample parameters is executed on every connection.
+     *
+     * @param syntheticExecutions The number of executions. Defaults to 0, which only prepares the statements.
+     */
+    public void setSyntheticExecutions(int syntheticExecutions) {
+        if (syntheticExecutions < 0) {
+            throw new IllegalArgumentException("syntheticExecutions should not be negative.");
+        }
+        this.syntheticExecutions = syntheticExecutions;
+    }
+
+    /**
+     * Sets the maximum duration of the whole warmup.
+     *
+     * @param timeLimit The time limit. Defaults to 30 seconds.
+     */
+    public void setTimeLimit(Duration timeLimit) {
+        ValidationUtils.validateNotNull(timeLimit, "Time limit");
+        if (timeLimit.isNegative() || timeLimit.isZero()) {
+            throw new IllegalArgumentException("Time limit should be positive.");
+        }
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Warms up every statement of the registry.
+     *
+     * @param registry The statements to warm up.
+     * @return The summary of the warmup.
+     */
+    public WarmupReport warmup(StatementRegistry registry) {
+        ValidationUtils.validateNotNull(registry, "Registry");
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.after(timeLimit);
+
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        List<Task> tasks = new ArrayList<>();
+        for (StatementRegistry.RegisteredStatement statement : registry.getStatements()) {
+            ParsedSql parsedSql = ParsedSql.parse(statement.getSql());
+            Object[] arguments = null;
+            try {
+                if (statement.getSampleParams() != null) {
+                    arguments = parsedSql.buildArguments(statement.getSampleParams());
+                } else if (statement.getSampleArgs() != null) {
+                    arguments = statement.getSampleArgs();
+                }
+            } catch (IllegalArgumentException e) {
+                failures.put(statement.getSql(), e.getMessage());
+            }
+            tasks.add(new Task(statement.getSql(), parsedSql.getJdbcSql(), arguments, statement.getRowMapper()));
+        }
+
+        AtomicInteger warmedConnections = new AtomicInteger();
+        AtomicInteger preparedStatements = new AtomicInteger();
+        AtomicInteger executions = new AtomicInteger();
+        AtomicBoolean cutShort = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(connections);
+        ExecutorService executor = Executors.newFixedThreadPool(connections, runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-template-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < connections; i++) {
+                executor.execute(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        if (warmConnection(connection, tasks, deadline, failures, preparedStatements, executions)) {
+                            warmedConnections.incrementAndGet();
+                        } else {
+                            cutShort.set(true);
+                        }
+                        finished.countDown();
+                        // Keep the connection checked out so the pool hands the other workers different ones
+                        finished.await(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+                    } catch (SQLException e) {
+                        failures.putIfAbsent("<connection>", String.valueOf(e.getMessage()));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            }
+            executor.shutdown();
+            boolean completed = executor.awaitTermination(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            return new WarmupReport(tasks.size(), warmedConnections.get(), preparedStatements.get(), executions.get(),
+                    failures, Duration.ofNanos(System.nanoTime() - start), !completed || cutShort.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Warmup was interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prepares and optionally executes every task on the given connection.
+     *
+     * @return true if the connection was warmed before the deadline; false if it was cut short.
+     */
+    private boolean warmConnection(Connection connection, List<Task> tasks, Deadline deadline, Map<String, String> failures,
+                                   AtomicInteger preparedStatements, AtomicInteger executions) {
+        for (Task task : tasks) {
+            if (deadline.isExpired() || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(task.jdbcSql)) {
+                preparedStatements.incrementAndGet();
+                if (task.arguments != null && syntheticExecutions > 0) {
+                    executeSynthetically(connection, statement, task, deadline, executions);
+                }
+            } catch (SQLException e) {
+                failures.putIfAbsent(task.sql, String.valueOf(e.getMessage()));
+            }
+        }
+        return true;
+    }
+
+    private void executeSynthetically(Connection connection, PreparedStatement statement, Task task, Deadline deadline,
+                                      AtomicInteger executions) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        statement.setQueryTimeout(deadline.remainingSecondsRoundedUp());
+        try {
+            for (int i = 0; i < syntheticExecutions && !deadline.isExpired(); i++) {
+                for (int j = 0; j < task.arguments.length; j++) {
+                    statement.setObject(j + 1, task.arguments[j]);
+                }
+                if (statement.execute()) {
+                    try (ResultSet resultSet = statement.getResultSet()) {
+                        while (resultSet.next()) {
+                            if (task.rowMapper != null) {
+                                task.rowMapper.map(resultSet);
+                            }
+                        }
+                    }
+                }
+                executions.incrementAndGet();
+            }
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static class Task {
+        private final String sql;
+        private final String jdbcSql;
+        private final Object[] arguments;
+        private final RowMapper<?> rowMapper;
+
+        private Task(String sql, String jdbcSql, Object[] arguments, RowMapper<?> rowMapper) {
+            this.sql = sql;
+            this.jdbcSql = jdbcSql;
+            this.arguments = arguments;
+            this.rowMapper = rowMapper;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bondarenko.template.warmup;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Summary of a {@link StatementWarmer} run.
+ */
+public class WarmupReport {
+    private final int statements;
+    private final int warmedConnections;
+    private final int preparedStatements;
+    private final int syntheticExecutions;
+    private final Map<String, String> failures;
+    private final Duration elapsed;
+    private final boolean timedOut;
+
+    public WarmupReport(int statements, int warmedConnections, int preparedStatements, int syntheticExecutions,
+                        Map<String, String> failures, Duration elapsed, boolean timedOut) {
+        this.statements = statements;
+        this.warmedConnections = warmedConnections;
+        this.preparedStatements = preparedStatements;
+        this.syntheticExecutions = syntheticExecutions;
+        this.failures = Map.copyOf(failures);
+        this.elapsed = elapsed;
+        this.timedOut = timedOut;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getWarmedConnections() {
+        return warmedConnections;
+    }
+
+    public int getPreparedStatements() {
+        return preparedStatements;
+    }
+
+    public int getSyntheticExecutions() {
+        return syntheticExecutions;
+    }
+
+    /**
+     * Returns the statements that could not be prepared or executed.
+     *
+     * @return The error message of every failed statement, keyed by its SQL.
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Tells whether the time limit expired before every connection was warmed.
+     *
+     * @return true if the warmup was cut short.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * Tells whether every statement was prepared on every requested connection within the time limit.
+     *
+     * @return true if the warmup completed without failures.
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty() && !timedOut;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmupReport{statements=" + statements + ", warmedConnections=" + warmedConnections
+                + ", preparedStatements=" + preparedStatements + ", syntheticExecutions=" + syntheticExecutions
+                + ", failures=" + failures.size() + ", elapsed=" + elapsed + ", timedOut=" + timedOut + "}";
+    }
+}
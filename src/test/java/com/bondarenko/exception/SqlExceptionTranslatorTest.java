@@ -0,0 +1,80 @@
+package com.bondarenko.exception;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlExceptionTranslatorTest {
+    private final SqlExceptionTranslator translator = new SqlExceptionTranslator();
+
+    @DisplayName("Test duplicate key SQLStates and vendor codes are translated")
+    @Test
+    void translate_ShouldReturnDuplicateKeyException() {
+        assertInstanceOf(DuplicateKeyException.class, translator.translate(new SQLException("unique", "23505")));
+        assertInstanceOf(DuplicateKeyException.class, translator.translate(new SQLException("mysql", "23000", 1062)));
+        assertEquals(DataAccessException.class, translator.translate(new SQLException("foreign key", "23000", 1452)).getClass());
+    }
+
+    @DisplayName("Test deadlock, timeout and connection SQLStates are translated")
+    @Test
+    void translate_ShouldClassifyBySqlState() {
+        assertInstanceOf(DeadlockException.class, translator.translate(new SQLException("deadlock", "40001")));
+        assertInstanceOf(DeadlockException.class, translator.translate(new SQLException("deadlock", "40P01")));
+        assertInstanceOf(QueryTimeoutException.class, translator.translate(new SQLException("cancelled", "57014")));
+        assertInstanceOf(QueryTimeoutException.class, translator.translate(new SQLException("lock timeout", "HYT00")));
+        assertInstanceOf(TransientConnectionException.class, translator.translate(new SQLException("broken", "08006")));
+    }
+
+    @DisplayName("Test exceptions without SQLState are classified by their type")
+    @Test
+    void translate_ShouldFallBackToExceptionType() {
+        assertInstanceOf(QueryTimeoutException.class, translator.translate(new SQLTimeoutException("timeout")));
+        assertInstanceOf(TransientConnectionException.class, translator.translate(new SQLTransientConnectionException("gone")));
+        assertEquals(DataAccessException.class, translator.translate(new SQLException("other")).getClass());
+    }
+
+    @DisplayName("Test translated exception keeps the original as its cause")
+    @Test
+    void translate_ShouldKeepCauseAndMessage() {
+        SQLException cause = new SQLException("unique", "23505");
+
+        DataAccessException exception = translator.translate(cause);
+
+        assertSame(cause, exception.getCause());
+        assertTrue(exception.getMessage().contains("unique"));
+        assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    @DisplayName("Test stackless translator throws duplicate keys without a stack trace")
+    @Test
+    void translate_ShouldSkipStackTrace_WhenStacklessDuplicateKeys() {
+        SqlExceptionTranslator stacklessTranslator = new SqlExceptionTranslator(true);
+        SQLException cause = new SQLException("unique", "23505");
+
+        DataAccessException duplicateKey = stacklessTranslator.translate(cause);
+        DataAccessException deadlock = stacklessTranslator.translate(new SQLException("deadlock", "40001"));
+
+        assertEquals(0, duplicateKey.getStackTrace().length);
+        assertSame(cause, duplicateKey.getCause());
+        assertTrue(deadlock.getStackTrace().length > 0);
+    }
+
+    @DisplayName("Test message and cause constructor keeps both")
+    @Test
+    void constructor_ShouldKeepMessageAndCause() {
+        SQLException cause = new SQLException("cause");
+
+        DataAccessException exception = new DataAccessException("message", cause);
+
+        assertEquals("message", exception.getMessage());
+        assertSame(cause, exception.getCause());
+    }
+}
@@ -0,0 +1,56 @@
+package com.bondarenko.mapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ColumnIndexResolverTest {
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    @DisplayName("Should resolve columns by position and fall back to lookup by label")
+    @Test
+    void shouldResolveColumnsByPositionAndLabel() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("CREATED");
+        when(metaData.getColumnLabel(3)).thenReturn("NAME");
+        ColumnIndexResolver resolver = new ColumnIndexResolver("id", "name", "missing");
+
+        int[] indexes = resolver.resolve(resultSet);
+
+        assertArrayEquals(new int[]{1, 3, 0}, indexes);
+    }
+
+    @DisplayName("Should reuse the resolution for the same ResultSet")
+    @Test
+    void shouldCacheResolutionPerResultSet() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        ColumnIndexResolver resolver = new ColumnIndexResolver("id");
+
+        int[] first = resolver.resolve(resultSet);
+        int[] second = resolver.resolve(resultSet);
+
+        assertSame(first, second);
+        verify(resultSet, times(1)).getMetaData();
+    }
+}
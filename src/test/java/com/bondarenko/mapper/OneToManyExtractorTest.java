@@ -0,0 +1,110 @@
+package com.bondarenko.mapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OneToManyExtractorTest {
+
+    @Mock
+    private ResultSet resultSet;
+
+    @DisplayName("Should fold joined rows into parents with distinct children")
+    @Test
+    void shouldFoldRowsIntoParents() throws SQLException {
+        // order_id, line_id: (1, 10), (1, 11), (2, NULL), (1, 10)
+        when(resultSet.next()).thenReturn(true, true, true, true, false);
+        when(resultSet.getLong("order_id")).thenReturn(1L, 1L, 2L, 1L);
+        when(resultSet.getLong("line_id")).thenReturn(10L, 11L, 0L, 10L);
+        when(resultSet.wasNull()).thenReturn(false, false, false, false, false, true, false, false);
+        when(resultSet.getString("order_name")).thenReturn("Order1", "Order2");
+        when(resultSet.getString("line_name")).thenReturn("Line10", "Line11");
+        RowMapper<Node> orderMapper = rs -> new Node(rs.getString("order_name"));
+        RowMapper<Node> lineMapper = rs -> new Node(rs.getString("line_name"));
+
+        List<Node> orders = OneToManyExtractor.of(KeyExtractor.column("order_id"), orderMapper)
+                .addChild(KeyExtractor.column("line_id"), lineMapper, Node::add)
+                .extract(resultSet);
+
+        assertEquals(2, orders.size());
+        assertEquals("Order1", orders.get(0).name);
+        assertEquals(List.of("Line10", "Line11"), orders.get(0).childNames());
+        assertEquals("Order2", orders.get(1).name);
+        assertTrue(orders.get(1).children.isEmpty());
+        verify(resultSet, times(8)).wasNull();
+    }
+
+    @DisplayName("Should support nested levels")
+    @Test
+    void shouldSupportNestedLevels() throws SQLException {
+        // order, line, detail keys: (1, 10, 100), (1, 10, 101), (1, 11, 102)
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 1L, 1L);
+        when(resultSet.getLong(2)).thenReturn(10L, 10L, 11L);
+        when(resultSet.getLong(3)).thenReturn(100L, 101L, 102L);
+        when(resultSet.wasNull()).thenReturn(false);
+        when(resultSet.getString(4)).thenReturn("Order1");
+        when(resultSet.getString(5)).thenReturn("Line10", "Line11");
+        when(resultSet.getString(6)).thenReturn("Detail100", "Detail101", "Detail102");
+
+        OneToManyExtractor<Node> lines = OneToManyExtractor.of(KeyExtractor.column(2), rs -> new Node(rs.getString(5)))
+                .addChild(KeyExtractor.column(3), rs -> new Node(rs.getString(6)), Node::add);
+        List<Node> orders = OneToManyExtractor.of(KeyExtractor.column(1), rs -> new Node(rs.getString(4)))
+                .addChild(lines, Node::add)
+                .extract(resultSet);
+
+        assertEquals(1, orders.size());
+        assertEquals(List.of("Line10", "Line11"), orders.get(0).childNames());
+        assertEquals(List.of("Detail100", "Detail101"), orders.get(0).children.get(0).childNames());
+        assertEquals(List.of("Detail102"), orders.get(0).children.get(1).childNames());
+    }
+
+    @DisplayName("Should keep every key when the primitive map grows")
+    @Test
+    void longKeyedMapShouldGrow() {
+        LongKeyedMap<String> map = new LongKeyedMap<>(1);
+        for (long key = -500; key < 500; key++) {
+            map.put(key * 7919, "v" + key);
+        }
+
+        assertEquals(1000, map.size());
+        for (long key = -500; key < 500; key++) {
+            assertEquals("v" + key, map.get(key * 7919));
+        }
+        assertNull(map.get(3));
+    }
+
+    private static class Node {
+        private final String name;
+        private final List<Node> children = new ArrayList<>();
+
+        private Node(String name) {
+            this.name = name;
+        }
+
+        private void add(Node child) {
+            children.add(child);
+        }
+
+        private List<String> childNames() {
+            List<String> names = new ArrayList<>();
+            for (Node child : children) {
+                names.add(child.name);
+            }
+            return names;
+        }
+    }
+}
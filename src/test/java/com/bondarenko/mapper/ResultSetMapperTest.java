@@ -3,6 +3,7 @@ package com.bondarenko.mapper;
 import com.bondarenko.TestEntity;
 import com.bondarenko.TestUtil;
 import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.ResultTooLargeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,11 +12,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -28,6 +35,9 @@ class ResultSetMapperTest {
     @Mock
     private RowMapper<TestEntity> rowMapper;
 
+    @Mock
+    private ResultSetMetaData metaData;
+
     private ResultSetMapper<TestEntity> resultSetMapper;
 
     @BeforeEach
@@ -97,4 +107,52 @@ class ResultSetMapperTest {
         assertEquals(entitySecond, resultList.get(1));
     }
 
-}
\ No newline at end of file
+    @DisplayName("Should resize the fetch size after measuring the first batch of rows")
+    @Test
+    void mapResultSetToList_ShouldAdaptFetchSize() throws SQLException {
+        mockWideRows(5);
+        FetchSizePolicy fetchSizePolicy = new FetchSizePolicy(2, 10_000, 1, 1000);
+
+        List<TestEntity> resultList = resultSetMapper.mapResultSetToList(resultSet, rowMapper, fetchSizePolicy, null);
+
+        assertEquals(5, resultList.size());
+        verify(resultSet).setFetchSize(4);
+    }
+
+    @DisplayName("Should truncate the result when the memory budget is exceeded")
+    @Test
+    void mapResultSetToList_ShouldTruncate_WhenBudgetExceeded() throws SQLException {
+        mockWideRows(10);
+
+        BoundedResultList<TestEntity> resultList = resultSetMapper.mapResultSetToList(resultSet, rowMapper,
+                null, MemoryBudget.truncateAfter(5_000));
+
+        assertTrue(resultList.isTruncated());
+        assertEquals(2, resultList.size());
+        verify(resultSet, never()).setFetchSize(anyInt());
+    }
+
+    @DisplayName("Should fail fast when the memory budget is exceeded")
+    @Test
+    void mapResultSetToList_ShouldFail_WhenBudgetExceeded() throws SQLException {
+        mockWideRows(10);
+
+        ResultTooLargeException exception = assertThrows(ResultTooLargeException.class,
+                () -> resultSetMapper.mapResultSetToList(resultSet, rowMapper, null, MemoryBudget.failAfter(5_000)));
+
+        assertEquals(3, exception.getRowCount());
+    }
+
+    private void mockWideRows(int rows) throws SQLException {
+        Boolean[] followingRows = new Boolean[rows];
+        Arrays.fill(followingRows, true);
+        followingRows[rows - 1] = false;
+        when(resultSet.next()).thenReturn(true, followingRows);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.getColumnType(2)).thenReturn(Types.VARCHAR);
+        lenient().when(resultSet.getString(2)).thenReturn("x".repeat(1000));
+        lenient().when(rowMapper.map(resultSet)).thenReturn(TestUtil.getTestEntity(1, "wide"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.bondarenko.mapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RowTest {
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    private RowMetadata rowMetadata;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(metaData.getColumnCount()).thenReturn(4);
+        when(metaData.getColumnLabel(1)).thenReturn("ID");
+        when(metaData.getColumnLabel(2)).thenReturn("AMOUNT");
+        when(metaData.getColumnLabel(3)).thenReturn("CREATED_AT");
+        when(metaData.getColumnLabel(4)).thenReturn("NOTE");
+        rowMetadata = RowMetadata.of(metaData);
+    }
+
+    @DisplayName("Should find columns by label regardless of case")
+    @Test
+    void shouldFindColumnsCaseInsensitively() {
+        assertEquals(0, rowMetadata.indexOf("id"));
+        assertEquals(2, rowMetadata.indexOf("Created_At"));
+        assertThrows(IllegalArgumentException.class, () -> rowMetadata.indexOf("missing"));
+    }
+
+    @DisplayName("Should convert values on access and cache the conversion")
+    @Test
+    void shouldConvertValuesLazilyAndCacheThem() throws SQLException {
+        Timestamp createdAt = Timestamp.valueOf("2024-03-01 10:15:30");
+        when(resultSet.getObject(1)).thenReturn(42L);
+        when(resultSet.getObject(2)).thenReturn("12.50");
+        when(resultSet.getObject(3)).thenReturn(createdAt);
+        when(resultSet.getObject(4)).thenReturn(null);
+
+        Row row = Row.capture(resultSet, rowMetadata);
+
+        assertEquals(42, row.getInt("id"));
+        assertEquals("42", row.getString(1));
+        assertSame(row.getString(1), row.getString("ID"));
+        assertEquals(new BigDecimal("12.50"), row.getBigDecimal("amount"));
+        assertSame(row.getBigDecimal(2), row.getBigDecimal("amount"));
+        assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), row.getLocalDateTime("created_at"));
+        assertSame(row.getLocalDateTime(3), row.getLocalDateTime(3));
+        assertTrue(row.isNull("note"));
+        assertNull(row.getString("note"));
+        assertEquals(0, row.getLong("note"));
+    }
+}
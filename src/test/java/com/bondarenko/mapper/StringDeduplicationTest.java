@@ -0,0 +1,101 @@
+package com.bondarenko.mapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StringDeduplicationTest {
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private ResultSetMetaData metaData;
+
+    @DisplayName("Should return one instance per distinct value of a deduplicated column")
+    @Test
+    void shouldCanonicalizeRepeatedValues() {
+        StringDeduplication.Dictionaries dictionaries = StringDeduplication.columns("STATUS")
+                .newDictionaries(List.of("id", "status"));
+
+        String first = dictionaries.canonicalize(2, new String("ACTIVE"));
+        String second = dictionaries.canonicalize(2, new String("ACTIVE"));
+        String other = new String("ACTIVE");
+
+        assertSame(first, second);
+        assertSame(other, dictionaries.canonicalize(1, other));
+        assertNull(dictionaries.canonicalize(2, null));
+    }
+
+    @DisplayName("Should stop deduplicating a high-cardinality column")
+    @Test
+    void shouldBailOutOnHighCardinality() {
+        StringDeduplication.StringDictionary dictionary = new StringDeduplication.StringDictionary(100_000);
+
+        for (int i = 0; i < StringDeduplication.BAILOUT_SAMPLE; i++) {
+            dictionary.canonicalize("value" + i);
+        }
+
+        assertTrue(dictionary.isDisabled());
+    }
+
+    @DisplayName("Should keep canonicalizing known values once the dictionary is full")
+    @Test
+    void shouldNotGrowBeyondMaxEntries() {
+        StringDeduplication.StringDictionary dictionary = new StringDeduplication.StringDictionary(2);
+        String a = dictionary.canonicalize(new String("A"));
+        dictionary.canonicalize(new String("B"));
+        String c = new String("C");
+
+        assertSame(c, dictionary.canonicalize(c));
+        assertNotSame(c, dictionary.canonicalize(new String("C")));
+        assertSame(a, dictionary.canonicalize(new String("A")));
+        assertFalse(dictionary.isDisabled());
+    }
+
+    @DisplayName("Should deduplicate getString of a wrapped ResultSet and pass other calls through")
+    @Test
+    void shouldDeduplicateWrappedResultSet() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(metaData.getColumnLabel(1)).thenReturn("COUNTRY");
+        when(resultSet.findColumn("country")).thenReturn(1);
+        when(resultSet.getString(1)).thenReturn(new String("Ukraine"), new String("Ukraine"));
+        when(resultSet.next()).thenReturn(true);
+
+        ResultSet wrapped = StringDeduplication.allColumns().wrap(resultSet);
+
+        assertTrue(wrapped.next());
+        assertSame(wrapped.getString(1), wrapped.getString("country"));
+    }
+
+    @DisplayName("Should deduplicate string values of getObject and getNString")
+    @Test
+    void shouldDeduplicateObjectAndNStringValues() throws SQLException {
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("COUNTRY");
+        when(metaData.getColumnLabel(2)).thenReturn("AMOUNT");
+        when(resultSet.getObject(1)).thenReturn(new String("Ukraine"), new String("Ukraine"));
+        when(resultSet.getNString(1)).thenReturn(new String("Ukraine"));
+        when(resultSet.getObject(2)).thenReturn(42);
+
+        ResultSet wrapped = StringDeduplication.allColumns().wrap(resultSet);
+
+        Object first = wrapped.getObject(1);
+        assertSame(first, wrapped.getObject(1));
+        assertSame(first, wrapped.getNString(1));
+        assertEquals(42, wrapped.getObject(2));
+    }
+}
@@ -2,18 +2,52 @@ package com.bondarenko.template;
 
 import com.bondarenko.TestEntity;
 import com.bondarenko.TestUtil;
+import com.bondarenko.exception.DuplicateKeyException;
+import com.bondarenko.exception.LimitExceededException;
+import com.bondarenko.exception.QueryTimeoutException;
+import com.bondarenko.exception.ResultTooLargeException;
+import com.bondarenko.exception.SqlExceptionTranslator;
+import com.bondarenko.mapper.BoundedResultList;
+import com.bondarenko.mapper.FetchSizePolicy;
+import com.bondarenko.mapper.KeyExtractor;
+import com.bondarenko.mapper.MemoryBudget;
+import com.bondarenko.mapper.OneToManyExtractor;
+import com.bondarenko.mapper.Row;
 import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.mapper.StringDeduplication;
+import com.bondarenko.template.export.ExportFormat;
+import com.bondarenko.template.limit.ConcurrencyLimiter;
+import org.h2.jdbcx.JdbcDataSource;
+import com.bondarenko.template.lob.SqlLob;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 public class JdbcTemplateITest {
     private JdbcTemplate jdbcTemplate;
@@ -65,6 +99,238 @@ public class JdbcTemplateITest {
         assertEquals("UpdatedEntity", updatedEntity.getName());
     }
 
+    @DisplayName("Should export query rows to a channel")
+    @Test
+    public void export_ShouldWriteRowsToChannel() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long rows = jdbcTemplate.export("SELECT id, name FROM test_table WHERE id > ? ORDER BY id",
+                ExportFormat.JSON_LINES, Channels.newChannel(output), 0);
+
+        assertEquals(2, rows);
+        assertEquals("{\"ID\":1,\"NAME\":\"Entity1\"}\n{\"ID\":2,\"NAME\":\"Entity2\"}\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @DisplayName("Should execute several queries on one connection with multiQuery")
+    @Test
+    public void multiQuery_ShouldReturnResultOfEveryQuery() {
+        RowMapper<TestEntity> rowMapper = TestUtil::getTestEntityByResultSet;
+        MultiQuery multiQuery = jdbcTemplate.multiQuery();
+        MultiQuery.Key<TestEntity> firstKey = multiQuery.add("SELECT id, name FROM test_table WHERE id = ?", rowMapper, 1);
+        MultiQuery.Key<TestEntity> allKey = multiQuery.add("SELECT id, name FROM test_table ORDER BY id", rowMapper);
+        MultiQuery.Key<Integer> countKey = multiQuery.add("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+
+        MultiQuery.Results results = multiQuery.execute();
+
+        assertEquals("Entity1", results.getFirst(firstKey).getName());
+        assertEquals(2, results.get(allKey).size());
+        assertEquals(2, results.getFirst(countKey));
+    }
+
+    @DisplayName("Should apply the query timeout, row limit and concurrency limit to multiQuery")
+    @Test
+    public void multiQuery_ShouldApplyTemplateSettings() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+        JdbcTemplate limitedTemplate = jdbcTemplate.withMaxRows(1);
+        limitedTemplate.setConcurrencyLimiter(limiter);
+        MultiQuery limitedQuery = limitedTemplate.multiQuery();
+        MultiQuery.Key<TestEntity> allKey = limitedQuery.add("SELECT id, name FROM test_table ORDER BY id",
+                TestUtil::getTestEntityByResultSet);
+        limitedQuery.add("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+
+        assertEquals(1, limitedQuery.execute().get(allKey).size());
+        assertEquals(0, limiter.getPartitions().iterator().next().getInFlight());
+
+        MultiQuery slowQuery = jdbcTemplate.withTimeout(Duration.ofMillis(200)).multiQuery();
+        slowQuery.add("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        slowQuery.add("SELECT SUM(X) FROM SYSTEM_RANGE(1, 10000000000)", resultSet -> resultSet.getLong(1));
+        long start = System.nanoTime();
+
+        assertThrows(QueryTimeoutException.class, slowQuery::execute);
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+    }
+
+    @DisplayName("Should truncate query results that exceed the memory budget of the query")
+    @Test
+    public void query_ShouldTruncate_WhenMemoryBudgetExceeded() {
+        jdbcTemplate.setFetchSizePolicy(FetchSizePolicy.adaptive());
+
+        BoundedResultList<TestEntity> entities = jdbcTemplate.query("SELECT id, name FROM test_table",
+                MemoryBudget.truncateAfter(100), TestUtil::getTestEntityByResultSet);
+
+        assertEquals(1, entities.size());
+        assertTrue(entities.isTruncated());
+    }
+
+    @DisplayName("Should fail queries that exceed the memory budget of the template")
+    @Test
+    public void query_ShouldThrowException_WhenTemplateMemoryBudgetExceeded() {
+        jdbcTemplate.setMemoryBudget(MemoryBudget.failAfter(100));
+
+        assertThrows(ResultTooLargeException.class,
+                () -> jdbcTemplate.query("SELECT id, name FROM test_table", TestUtil::getTestEntityByResultSet));
+        assertThrows(IllegalArgumentException.class, () -> jdbcTemplate.setMemoryBudget(MemoryBudget.truncateAfter(100)));
+    }
+
+    @DisplayName("Should cancel a query that exceeds its deadline")
+    @Test
+    public void withTimeout_ShouldCancelSlowQuery() {
+        JdbcTemplate timedTemplate = jdbcTemplate.withTimeout(Duration.ofMillis(200));
+        long start = System.nanoTime();
+
+        assertThrows(QueryTimeoutException.class, () -> timedTemplate.queryForObject(
+                "SELECT SUM(X) FROM SYSTEM_RANGE(1, 10000000000)", resultSet -> resultSet.getLong(1)));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+        assertEquals("Entity1", timedTemplate.queryForObject("SELECT name FROM test_table WHERE id = ?",
+                resultSet -> resultSet.getString(1), 1));
+    }
+
+    @DisplayName("Should report a timeout when the deadline passes while rows are mapped")
+    @Test
+    public void withTimeout_ShouldThrowQueryTimeoutException_WhenMappingIsSlow() {
+        JdbcDataSource lazyDataSource = new JdbcDataSource();
+        lazyDataSource.setURL("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1;LAZY_QUERY_EXECUTION=TRUE");
+        lazyDataSource.setUser("sa");
+        lazyDataSource.setPassword("sa");
+        JdbcTemplate timedTemplate = new JdbcTemplate(lazyDataSource).withTimeout(Duration.ofMillis(100));
+        RowMapper<Long> slowRowMapper = resultSet -> {
+            if (resultSet.getLong(1) == 1) {
+                sleep(300);
+            }
+            return resultSet.getLong(1);
+        };
+
+        assertThrows(QueryTimeoutException.class,
+                () -> timedTemplate.query("SELECT X FROM SYSTEM_RANGE(1, 100000)", slowRowMapper));
+    }
+
+    @DisplayName("Should return lazily converted rows in queryForRows")
+    @Test
+    public void queryForRows_ShouldReturnRows() {
+        List<Row> rows = jdbcTemplate.queryForRows("SELECT id, name FROM test_table WHERE id >= ? ORDER BY id", 1);
+
+        assertEquals(2, rows.size());
+        assertEquals(1, rows.get(0).getInt("id"));
+        assertEquals("Entity2", rows.get(1).getString("NAME"));
+        assertSame(rows.get(0).getMetadata(), rows.get(1).getMetadata());
+    }
+
+    @DisplayName("Should share one String instance per repeated value when deduplicating")
+    @Test
+    public void withStringDeduplication_ShouldShareRepeatedStrings() {
+        jdbcTemplate.update("UPDATE test_table SET name = ?", "Same");
+        JdbcTemplate deduplicatingTemplate = jdbcTemplate.withStringDeduplication(StringDeduplication.columns("name"));
+
+        List<TestEntity> entities = deduplicatingTemplate.query("SELECT id, name FROM test_table", TestUtil::getTestEntityByResultSet);
+        List<Row> rows = deduplicatingTemplate.queryForRows("SELECT id, name FROM test_table");
+
+        assertSame(entities.get(0).getName(), entities.get(1).getName());
+        assertSame(rows.get(0).getString("name"), rows.get(1).getString("name"));
+    }
+
+    @DisplayName("Should fold a join into parents with children in one query")
+    @Test
+    public void extract_ShouldFoldJoinIntoParents() {
+        jdbcTemplate.update("CREATE TABLE test_child (id INT PRIMARY KEY, parent_id INT, name VARCHAR(255))");
+        try {
+            jdbcTemplate.update("INSERT INTO test_child VALUES (10, 1, 'Child10'), (11, 1, 'Child11')");
+            Map<Integer, List<String>> childrenByParent = new HashMap<>();
+
+            List<TestEntity> parents = jdbcTemplate.extract(
+                    "SELECT t.id, t.name, c.id AS child_id, c.name AS child_name FROM test_table t "
+                            + "LEFT JOIN test_child c ON c.parent_id = t.id WHERE t.id > ? ORDER BY t.id, c.id",
+                    OneToManyExtractor.of(KeyExtractor.column("id"), TestUtil::getTestEntityByResultSet)
+                            .addChild(KeyExtractor.column("child_id"), resultSet -> resultSet.getString("child_name"),
+                                    (TestEntity parent, String child) -> childrenByParent
+                                            .computeIfAbsent(parent.getId(), id -> new ArrayList<>()).add(child)),
+                    0);
+
+            assertEquals(2, parents.size());
+            assertEquals(List.of("Child10", "Child11"), childrenByParent.get(1));
+            assertNull(childrenByParent.get(2));
+        } finally {
+            jdbcTemplate.update("DROP TABLE test_child");
+        }
+    }
+
+    @DisplayName("Should stream LOBs in and out without materializing them")
+    @Test
+    public void readBlob_ShouldStreamStoredContent() throws Exception {
+        jdbcTemplate.update("CREATE TABLE test_document (id INT PRIMARY KEY, content BLOB, text CLOB)");
+        Path file = Files.createTempFile("document", ".bin");
+        Path missingFile = file.resolveSibling(file.getFileName() + ".missing");
+        try {
+            byte[] content = new byte[300_000];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = (byte) i;
+            }
+            String text = "Document text ".repeat(10_000);
+            jdbcTemplate.update("INSERT INTO test_document VALUES (?, ?, ?)", 1,
+                    SqlLob.binary(new ByteArrayInputStream(content), content.length),
+                    SqlLob.character(new StringReader(text), text.length()));
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            long bytes = jdbcTemplate.readBlob("SELECT content FROM test_document WHERE id = ?", Channels.newChannel(output), 1);
+            long fileBytes = jdbcTemplate.readBlob("SELECT content FROM test_document WHERE id = ?", file, 1);
+            StringWriter writer = new StringWriter();
+            long characters = jdbcTemplate.readClob("SELECT text FROM test_document WHERE id = ?", writer, 1);
+            long missing = jdbcTemplate.readBlob("SELECT content FROM test_document WHERE id = ?", missingFile, 2);
+
+            assertEquals(content.length, bytes);
+            assertArrayEquals(content, output.toByteArray());
+            assertEquals(content.length, fileBytes);
+            assertArrayEquals(content, Files.readAllBytes(file));
+            assertEquals(text.length(), characters);
+            assertEquals(text, writer.toString());
+            assertEquals(-1, missing);
+            assertFalse(Files.exists(missingFile));
+        } finally {
+            Files.deleteIfExists(file);
+            jdbcTemplate.update("DROP TABLE test_document");
+        }
+    }
+
+    @DisplayName("Should translate a primary key violation into a DuplicateKeyException")
+    @Test
+    public void update_ShouldThrowDuplicateKeyException_WhenKeyExists() {
+        jdbcTemplate.setExceptionTranslator(new SqlExceptionTranslator(true));
+
+        DuplicateKeyException exception = assertThrows(DuplicateKeyException.class,
+                () -> jdbcTemplate.update("INSERT INTO test_table (id, name) VALUES (?, ?)", 1, "Duplicate"));
+
+        assertNotNull(exception.getCause());
+        assertEquals(0, exception.getStackTrace().length);
+    }
+
+    @DisplayName("Should reject calls over the concurrency limit and release permits of finished calls")
+    @Test
+    public void setConcurrencyLimiter_ShouldRejectCallsOverLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+        jdbcTemplate.setConcurrencyLimiter(limiter);
+
+        List<TestEntity> entities = jdbcTemplate.query("SELECT id, name FROM test_table", TestUtil::getTestEntityByResultSet);
+        ConcurrencyLimiter.Permit held = limiter.acquire("SELECT id, name FROM test_table");
+
+        assertEquals(2, entities.size());
+        assertThrows(LimitExceededException.class,
+                () -> jdbcTemplate.query("SELECT id, name FROM test_table", TestUtil::getTestEntityByResultSet));
+        assertEquals(1, jdbcTemplate.update("UPDATE test_table SET name = ? WHERE id = ?", "Updated", 1));
+        held.onIgnore();
+        assertEquals(0, limiter.getPartition("SELECT id, name FROM test_table").getInFlight());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     @AfterEach
     public void tearDown() throws SQLException {
         TestUtil.dropTestTable(dataSource);
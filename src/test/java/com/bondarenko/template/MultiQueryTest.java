@@ -0,0 +1,169 @@
+package com.bondarenko.template;
+
+import com.bondarenko.TestEntity;
+import com.bondarenko.TestUtil;
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.DeadlockException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MultiQueryTest {
+    private static final String COMBINED_SQL = "SELECT id, name FROM table WHERE id = ?;\nSELECT COUNT(*) FROM table";
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private Connection connection;
+    @Mock
+    private DatabaseMetaData metaData;
+    @Mock
+    private PreparedStatement combinedStatement;
+    @Mock
+    private PreparedStatement firstStatement;
+    @Mock
+    private PreparedStatement secondStatement;
+    @Mock
+    private ResultSet firstResultSet;
+    @Mock
+    private ResultSet secondResultSet;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(metaData.supportsMultipleResultSets()).thenReturn(true);
+    }
+
+    @DisplayName("Should execute all queries in one statement when the driver supports multiple result sets")
+    @Test
+    void shouldExecuteQueriesInOneRoundTrip() throws SQLException {
+        when(connection.prepareStatement(COMBINED_SQL)).thenReturn(combinedStatement);
+        when(combinedStatement.execute()).thenReturn(true);
+        when(combinedStatement.getResultSet()).thenReturn(firstResultSet, secondResultSet);
+        when(combinedStatement.getMoreResults()).thenReturn(true, false);
+        when(firstResultSet.next()).thenReturn(true, false);
+        when(secondResultSet.next()).thenReturn(true, false);
+        when(secondResultSet.getInt(1)).thenReturn(2);
+
+        MultiQuery multiQuery = jdbcTemplate.multiQuery();
+        MultiQuery.Key<TestEntity> entityKey = multiQuery.add("SELECT id, name FROM table WHERE id = ?;",
+                resultSet -> TestUtil.getTestEntity(1, "Test"), 1);
+        MultiQuery.Key<Integer> countKey = multiQuery.add("SELECT COUNT(*) FROM table", resultSet -> resultSet.getInt(1));
+        MultiQuery.Results results = multiQuery.execute();
+
+        assertEquals("Test", results.getFirst(entityKey).getName());
+        assertEquals(2, results.getFirst(countKey));
+        verify(combinedStatement).setObject(1, 1);
+    }
+
+    @DisplayName("Should fall back to sequential execution when the combined statement is rejected")
+    @Test
+    void shouldFallBackToSequentialExecution() throws SQLException {
+        when(connection.prepareStatement(COMBINED_SQL)).thenThrow(new SQLException("Syntax error in SQL statement", "42000"));
+        when(connection.prepareStatement("SELECT id, name FROM table WHERE id = ?")).thenReturn(firstStatement);
+        when(connection.prepareStatement("SELECT COUNT(*) FROM table")).thenReturn(secondStatement);
+        when(firstStatement.executeQuery()).thenReturn(firstResultSet);
+        when(secondStatement.executeQuery()).thenReturn(secondResultSet);
+        when(firstResultSet.next()).thenReturn(false);
+        when(secondResultSet.next()).thenReturn(true, false);
+        when(secondResultSet.getInt(1)).thenReturn(2);
+
+        MultiQuery multiQuery = jdbcTemplate.multiQuery();
+        MultiQuery.Key<TestEntity> entityKey = multiQuery.add("SELECT id, name FROM table WHERE id = ?",
+                resultSet -> TestUtil.getTestEntity(1, "Test"), 1);
+        MultiQuery.Key<Integer> countKey = multiQuery.add("SELECT COUNT(*) FROM table", resultSet -> resultSet.getInt(1));
+        MultiQuery.Results results = multiQuery.execute();
+
+        assertEquals(0, results.get(entityKey).size());
+        assertEquals(2, results.getFirst(countKey));
+        assertTrue(jdbcTemplate.isMultiStatementEnabled());
+    }
+
+    @DisplayName("Should stop combining statements after repeated rejections")
+    @Test
+    void shouldDisableMultiStatementAfterRepeatedRejections() throws SQLException {
+        when(connection.prepareStatement(COMBINED_SQL)).thenThrow(new SQLException("Syntax error in SQL statement", "42000"));
+        when(connection.prepareStatement("SELECT id, name FROM table WHERE id = ?")).thenReturn(firstStatement);
+        when(connection.prepareStatement("SELECT COUNT(*) FROM table")).thenReturn(secondStatement);
+        when(firstStatement.executeQuery()).thenReturn(firstResultSet);
+        when(secondStatement.executeQuery()).thenReturn(secondResultSet);
+
+        for (int i = 0; i < 3; i++) {
+            MultiQuery multiQuery = jdbcTemplate.multiQuery();
+            multiQuery.add("SELECT id, name FROM table WHERE id = ?", resultSet -> TestUtil.getTestEntity(1, "Test"), 1);
+            multiQuery.add("SELECT COUNT(*) FROM table", resultSet -> resultSet.getInt(1));
+            multiQuery.execute();
+        }
+
+        assertFalse(jdbcTemplate.isMultiStatementEnabled());
+    }
+
+    @DisplayName("Should throw a missing table without falling back and keep combining statements")
+    @Test
+    void shouldPropagateUnknownTableWithoutFallingBack() throws SQLException {
+        when(connection.prepareStatement(COMBINED_SQL)).thenThrow(new SQLException("Table \"TABLE\" not found", "42S02"));
+
+        MultiQuery multiQuery = jdbcTemplate.multiQuery();
+        multiQuery.add("SELECT id, name FROM table WHERE id = ?", resultSet -> TestUtil.getTestEntity(1, "Test"), 1);
+        multiQuery.add("SELECT COUNT(*) FROM table", resultSet -> resultSet.getInt(1));
+
+        assertThrows(DataAccessException.class, multiQuery::execute);
+        assertTrue(jdbcTemplate.isMultiStatementEnabled());
+        verify(connection, never()).prepareStatement("SELECT COUNT(*) FROM table");
+    }
+
+    @DisplayName("Should throw a deadlock on the combined statement and keep combining statements")
+    @Test
+    void shouldPropagateDeadlockWithoutFallingBack() throws SQLException {
+        when(connection.prepareStatement(COMBINED_SQL)).thenReturn(combinedStatement);
+        when(combinedStatement.execute()).thenThrow(new SQLException("Deadlock detected", "40001"));
+
+        MultiQuery multiQuery = jdbcTemplate.multiQuery();
+        multiQuery.add("SELECT id, name FROM table WHERE id = ?", resultSet -> TestUtil.getTestEntity(1, "Test"), 1);
+        multiQuery.add("SELECT COUNT(*) FROM table", resultSet -> resultSet.getInt(1));
+
+        assertThrows(DeadlockException.class, multiQuery::execute);
+        assertTrue(jdbcTemplate.isMultiStatementEnabled());
+        verify(connection, never()).prepareStatement("SELECT COUNT(*) FROM table");
+    }
+
+    @DisplayName("Should reject keys of another MultiQuery")
+    @Test
+    void shouldRejectForeignKey() throws SQLException {
+        when(metaData.supportsMultipleResultSets()).thenReturn(false);
+        when(connection.prepareStatement("SELECT 1")).thenReturn(firstStatement);
+        when(firstStatement.executeQuery()).thenReturn(firstResultSet);
+        MultiQuery first = jdbcTemplate.multiQuery();
+        first.add("SELECT 1", resultSet -> 1);
+        first.add("SELECT 1", resultSet -> 1);
+        MultiQuery second = jdbcTemplate.multiQuery();
+        MultiQuery.Key<Integer> foreignKey = second.add("SELECT 1", resultSet -> 1);
+
+        MultiQuery.Results results = first.execute();
+
+        assertThrows(IllegalArgumentException.class, () -> results.get(foreignKey));
+    }
+}
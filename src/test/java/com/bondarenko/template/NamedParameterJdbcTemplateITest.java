@@ -3,6 +3,8 @@ package com.bondarenko.template;
 import com.bondarenko.TestEntity;
 import com.bondarenko.TestUtil;
 import com.bondarenko.mapper.RowMapper;
+import com.bondarenko.template.warmup.StatementRegistry;
+import com.bondarenko.template.warmup.WarmupReport;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,12 +12,16 @@ import org.junit.jupiter.api.Test;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NamedParameterJdbcTemplateITest {
     private DataSource dataSource = TestUtil.getJdbcDataSource();
@@ -87,6 +93,39 @@ public class NamedParameterJdbcTemplateITest {
         assertEquals("UpdatedEntity", updatedEntity.getName());
     }
 
+    @Test
+    @DisplayName("Should bind parameters in SQL order regardless of map order")
+    public void update_ShouldBindParametersInSqlOrder() {
+        Map<String, Object> paramMap = new LinkedHashMap<>();
+        paramMap.put("id", 2);
+        paramMap.put("name", "Renamed");
+
+        int updatedRows = namedParameterJdbcTemplate.update(
+                "UPDATE test_table SET name = :name WHERE id = :id OR (id = :id AND name = ':id')",
+                paramMap
+        );
+
+        assertEquals(1, updatedRows);
+        TestEntity entity = namedParameterJdbcTemplate.queryForObject(
+                "SELECT id, name FROM test_table WHERE id = :id", Map.of("id", 2), TestUtil::getTestEntityByResultSet);
+        assertEquals("Renamed", entity.getName());
+    }
+
+    @Test
+    @DisplayName("Should warm up registered statements and cache their parsed form")
+    public void warmup_ShouldPrepareRegisteredStatements() {
+        String sql = "SELECT id, name FROM test_table WHERE id = :id";
+        StatementRegistry registry = new StatementRegistry()
+                .register(sql, Map.of("id", 1), TestUtil::getTestEntityByResultSet);
+
+        WarmupReport report = namedParameterJdbcTemplate.warmup(registry, 2, 3, Duration.ofSeconds(10));
+
+        assertTrue(report.isSuccessful());
+        assertEquals(2, report.getPreparedStatements());
+        assertEquals(6, report.getSyntheticExecutions());
+        assertSame(namedParameterJdbcTemplate.getParsedSql(sql), namedParameterJdbcTemplate.getParsedSql(sql));
+    }
+
     @AfterEach
     public void tearDown() throws SQLException {
         TestUtil.dropTestTable(dataSource);
@@ -0,0 +1,50 @@
+package com.bondarenko.template;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParsedSqlTest {
+
+    @Test
+    @DisplayName("Should replace named parameters with placeholders in order of appearance")
+    public void parse_ShouldReplaceNamedParameters() {
+        ParsedSql parsedSql = ParsedSql.parse("UPDATE t SET name = :name WHERE id = :id OR parent_id = :id");
+
+        assertEquals("UPDATE t SET name = ? WHERE id = ? OR parent_id = ?", parsedSql.getJdbcSql());
+        assertEquals(List.of("name", "id", "id"), parsedSql.getParameterNames());
+    }
+
+    @Test
+    @DisplayName("Should not treat literals, comments and casts as parameters")
+    public void parse_ShouldSkipLiteralsCommentsAndCasts() {
+        String sql = "SELECT ':a', \"b:c\", 'it''s :d', x::int -- :e\n/* :f */ FROM t WHERE id = :id";
+
+        ParsedSql parsedSql = ParsedSql.parse(sql);
+
+        assertEquals(sql.replace(":id", "?"), parsedSql.getJdbcSql());
+        assertEquals(List.of("id"), parsedSql.getParameterNames());
+    }
+
+    @Test
+    @DisplayName("Should not confuse a parameter with a longer one sharing its prefix")
+    public void parse_ShouldDistinguishParametersWithSamePrefix() {
+        ParsedSql parsedSql = ParsedSql.parse("SELECT * FROM t WHERE id = :id AND id_type = :idType");
+
+        assertArrayEquals(new Object[]{1, "A"}, parsedSql.buildArguments(Map.of("idType", "A", "id", 1)));
+    }
+
+    @Test
+    @DisplayName("Should throw when a named parameter has no value")
+    public void buildArguments_ShouldThrowForMissingParameter() {
+        ParsedSql parsedSql = ParsedSql.parse("SELECT * FROM t WHERE id = :id");
+
+        assertThrows(IllegalArgumentException.class, () -> parsedSql.buildArguments(Map.of("name", "x")));
+    }
+}
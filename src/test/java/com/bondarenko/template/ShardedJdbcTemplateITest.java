@@ -0,0 +1,178 @@
+package com.bondarenko.template;
+
+import com.bondarenko.TestEntity;
+import com.bondarenko.TestUtil;
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.QueryTimeoutException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedJdbcTemplateITest {
+    private static final int SHARDS = 3;
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private ShardedJdbcTemplate shardedJdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < SHARDS; i++) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:shard" + i + ";DB_CLOSE_DELAY=-1");
+            dataSource.setUser("sa");
+            dataSource.setPassword("sa");
+            new JdbcTemplate(dataSource).update("CREATE TABLE sharded_table (id INT PRIMARY KEY, name VARCHAR(255))");
+            dataSources.add(dataSource);
+        }
+        shardedJdbcTemplate = new ShardedJdbcTemplate(dataSources, key -> (Integer) key);
+        for (int id = 1; id <= 30; id++) {
+            shardedJdbcTemplate.update(id, "INSERT INTO sharded_table (id, name) VALUES (?, ?)", id, "Entity" + id);
+        }
+    }
+
+    @Test
+    @DisplayName("Should route single-key operations to the owning shard")
+    public void update_ShouldRouteToOwningShard() {
+        for (int i = 0; i < SHARDS; i++) {
+            Integer count = new JdbcTemplate(dataSources.get(i))
+                    .queryForObject("SELECT COUNT(*) FROM sharded_table", resultSet -> resultSet.getInt(1));
+            assertEquals(10, count);
+        }
+        Integer owner = new JdbcTemplate(dataSources.get(7 % SHARDS))
+                .queryForObject("SELECT id FROM sharded_table WHERE id = ?", resultSet -> resultSet.getInt(1), 7);
+        assertEquals(7, owner);
+
+        TestEntity entity = shardedJdbcTemplate.queryForObject(7, "SELECT id, name FROM sharded_table WHERE id = ?",
+                TestUtil::getTestEntityByResultSet, 7);
+        assertEquals("Entity7", entity.getName());
+    }
+
+    @Test
+    @DisplayName("Should fan out keyless queries and concatenate the results")
+    public void queryAll_ShouldReturnRowsOfEveryShard() {
+        List<TestEntity> entities = shardedJdbcTemplate.queryAll("SELECT id, name FROM sharded_table WHERE id > ?",
+                TestUtil::getTestEntityByResultSet, 20);
+
+        assertEquals(10, entities.size());
+    }
+
+    @Test
+    @DisplayName("Should merge ordered shard results and apply the limit")
+    public void queryAllOrdered_ShouldMergeOrderedResultsWithLimit() {
+        List<TestEntity> entities = shardedJdbcTemplate.queryAllOrdered("SELECT id, name FROM sharded_table ORDER BY id DESC",
+                TestUtil::getTestEntityByResultSet, Comparator.comparingInt(TestEntity::getId).reversed(), 5);
+
+        List<Integer> ids = new ArrayList<>();
+        for (TestEntity entity : entities) {
+            ids.add(entity.getId());
+        }
+        assertEquals(List.of(30, 29, 28, 27, 26), ids);
+    }
+
+    @Test
+    @DisplayName("Should merge every row when there is no limit")
+    public void queryAllOrdered_ShouldMergeEveryRowWithoutLimit() {
+        List<TestEntity> entities = shardedJdbcTemplate.queryAllOrdered("SELECT id, name FROM sharded_table ORDER BY id",
+                TestUtil::getTestEntityByResultSet, Comparator.comparingInt(TestEntity::getId), 0);
+
+        assertEquals(30, entities.size());
+        for (int i = 0; i < entities.size(); i++) {
+            assertEquals(i + 1, entities.get(i).getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should sum updates of every shard")
+    public void updateAll_ShouldUpdateEveryShard() {
+        int updatedRows = shardedJdbcTemplate.updateAll("UPDATE sharded_table SET name = ? WHERE MOD(id, 2) = 0", "Even");
+
+        assertEquals(15, updatedRows);
+    }
+
+    @Test
+    @DisplayName("Should share one timeout across the fan-out")
+    public void queryAll_ShouldFailWhenFanOutExceedsTimeout() {
+        shardedJdbcTemplate.setQueryTimeout(Duration.ofMillis(200));
+        long start = System.nanoTime();
+
+        assertThrows(QueryTimeoutException.class, () -> shardedJdbcTemplate.queryAll(
+                "SELECT SUM(X) FROM SYSTEM_RANGE(1, 10000000000)", resultSet -> resultSet.getLong(1)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 5_000);
+    }
+
+    @Test
+    @DisplayName("Should fail as soon as one shard fails without interrupting the other shard queries")
+    public void queryAll_ShouldFailFast_WhenLaterShardFails() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(SHARDS - 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(SHARDS - 1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        long start = System.nanoTime();
+
+        try {
+            assertThrows(DataAccessException.class, () -> shardedJdbcTemplate.queryAll(
+                    "SELECT id FROM sharded_table WHERE id <= ?", resultSet -> {
+                        if (resultSet.getInt(1) == SHARDS - 1) {
+                            awaitQuietly(blocked);
+                            throw new SQLException("Shard failed");
+                        }
+                        try {
+                            blocked.countDown();
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            interrupted.set(true);
+                        } finally {
+                            finished.countDown();
+                        }
+                        return resultSet.getInt(1);
+                    }, SHARDS));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+        assertFalse(interrupted.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("Should route keys with equal values to the same shard by default")
+    public void getShardIndex_ShouldUseValueHashCode_ByDefault() {
+        try (ShardedJdbcTemplate template = new ShardedJdbcTemplate(dataSources)) {
+            assertEquals(template.getShardIndex("customer-42"), template.getShardIndex(new String("customer-42")));
+            assertEquals(Math.floorMod("customer-42".hashCode(), SHARDS), template.getShardIndex("customer-42"));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        shardedJdbcTemplate.close();
+        for (DataSource dataSource : dataSources) {
+            new JdbcTemplate(dataSource).update("DROP TABLE sharded_table");
+        }
+    }
+}
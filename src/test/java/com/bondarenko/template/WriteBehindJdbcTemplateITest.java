@@ -0,0 +1,164 @@
+package com.bondarenko.template;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.exception.DataAccessException;
+import com.bondarenko.exception.DuplicateKeyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WriteBehindJdbcTemplateITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+    private WriteBehindJdbcTemplate writeBehindJdbcTemplate;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        writeBehindJdbcTemplate = new WriteBehindJdbcTemplate(dataSource, 50, Duration.ofMillis(20));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestUtil.createTestTable(dataSource);
+    }
+
+    @DisplayName("Should commit updates submitted concurrently and complete their futures")
+    @Test
+    public void update_ShouldCommitConcurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int thread = i;
+            executor.submit(() -> {
+                for (int j = 0; j < 250; j++) {
+                    int id = 100 + thread * 250 + j;
+                    CompletableFuture<Integer> future = writeBehindJdbcTemplate.update(
+                            "INSERT INTO test_table (id, name) VALUES (?, ?)", id, "Name" + id);
+                    synchronized (futures) {
+                        futures.add(future);
+                    }
+                }
+                writeBehindJdbcTemplate.update("UPDATE test_table SET name = ? WHERE id = ?", "Updated", 1);
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (CompletableFuture<Integer> future : futures) {
+            assertEquals(1, future.get(10, TimeUnit.SECONDS));
+        }
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        assertEquals(1002, count);
+    }
+
+    @DisplayName("Should flush buffered updates when closed")
+    @Test
+    public void close_ShouldFlushBufferedUpdates() throws Exception {
+        WriteBehindJdbcTemplate template = new WriteBehindJdbcTemplate(dataSource, 1000, Duration.ofHours(1));
+        CompletableFuture<Integer> future = template.update("UPDATE test_table SET name = ? WHERE id = ?", "Closed", 2);
+
+        template.close();
+
+        assertEquals(1, future.get(1, TimeUnit.SECONDS));
+        String name = jdbcTemplate.queryForObject("SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 2);
+        assertEquals("Closed", name);
+        assertThrows(IllegalStateException.class, () -> template.update("UPDATE test_table SET name = ?", "Late"));
+    }
+
+    @DisplayName("Should complete every accepted update when closed while updates are submitted")
+    @Test
+    public void close_ShouldCompleteAcceptedUpdates_WhenUpdatesRace() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                WriteBehindJdbcTemplate template = new WriteBehindJdbcTemplate(dataSource, 1000, Duration.ofHours(1));
+                List<CompletableFuture<List<CompletableFuture<Integer>>>> submitters = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    submitters.add(CompletableFuture.supplyAsync(() -> {
+                        List<CompletableFuture<Integer>> accepted = new ArrayList<>();
+                        try {
+                            while (accepted.size() < 500) {
+                                accepted.add(template.update("UPDATE test_table SET name = ? WHERE id = ?", "Race", 1));
+                            }
+                        } catch (IllegalStateException e) {
+                            // Closed while submitting
+                        }
+                        return accepted;
+                    }, executor));
+                }
+                Thread.sleep(1);
+
+                template.close();
+
+                for (CompletableFuture<List<CompletableFuture<Integer>>> submitter : submitters) {
+                    for (CompletableFuture<Integer> future : submitter.get(10, TimeUnit.SECONDS)) {
+                        assertEquals(1, future.get(10, TimeUnit.SECONDS));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Should fail only the failing update and commit the other updates of the flush")
+    @Test
+    public void update_ShouldFailOnlyFailingUpdate_WhenBatchFails() throws Exception {
+        WriteBehindJdbcTemplate template = new WriteBehindJdbcTemplate(dataSource, 4, Duration.ofHours(1));
+        CompletableFuture<Integer> valid = template.update("UPDATE test_table SET name = ? WHERE id = ?", "Updated", 1);
+        CompletableFuture<Integer> inserted = template.update("INSERT INTO test_table (id, name) VALUES (?, ?)", 3, "Entity3");
+        CompletableFuture<Integer> duplicate = template.update("INSERT INTO test_table (id, name) VALUES (?, ?)", 2, "Duplicate");
+        CompletableFuture<Integer> insertedAfter = template.update("INSERT INTO test_table (id, name) VALUES (?, ?)", 4, "Entity4");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> duplicate.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DuplicateKeyException.class, exception.getCause());
+        assertEquals(1, valid.get(5, TimeUnit.SECONDS));
+        assertEquals(1, inserted.get(5, TimeUnit.SECONDS));
+        assertEquals(1, insertedAfter.get(5, TimeUnit.SECONDS));
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        assertEquals(4, count);
+        assertEquals("Entity2", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 2));
+        template.close();
+    }
+
+    @DisplayName("Should fail the updates of a flush and keep flushing when the flush throws an error")
+    @Test
+    public void update_ShouldKeepFlushing_WhenFlushThrowsError() throws Exception {
+        DataSource failingOnce = mock(DataSource.class);
+        when(failingOnce.getConnection())
+                .thenThrow(new StackOverflowError())
+                .thenAnswer(invocation -> dataSource.getConnection());
+        WriteBehindJdbcTemplate template = new WriteBehindJdbcTemplate(failingOnce, 1, Duration.ofHours(1));
+        CompletableFuture<Integer> failed = template.update("UPDATE test_table SET name = ? WHERE id = ?", "Lost", 1);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataAccessException.class, exception.getCause());
+        assertInstanceOf(StackOverflowError.class, exception.getCause().getCause());
+        CompletableFuture<Integer> next = template.update("UPDATE test_table SET name = ? WHERE id = ?", "Flushed", 1);
+        assertEquals(1, next.get(5, TimeUnit.SECONDS));
+        template.close();
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        writeBehindJdbcTemplate.close();
+        TestUtil.dropTestTable(dataSource);
+    }
+}
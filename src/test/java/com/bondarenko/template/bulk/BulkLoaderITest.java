@@ -0,0 +1,114 @@
+package com.bondarenko.template.bulk;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.exception.TransientConnectionException;
+import com.bondarenko.template.JdbcTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkLoaderITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestUtil.createTestTable(dataSource);
+    }
+
+    @DisplayName("Should load every line of a multi-chunk file")
+    @Test
+    public void load_ShouldInsertAllLines() throws IOException {
+        Path input = tempDir.resolve("input.csv");
+        int lines = 100_000;
+        try (BufferedWriter writer = Files.newBufferedWriter(input, StandardCharsets.UTF_8)) {
+            writer.write("id,name\n");
+            for (int i = 3; i < lines + 3; i++) {
+                writer.write(i + ",\"Name, number " + i + " with some padding to grow the file\"\n");
+            }
+        }
+        BulkLoader loader = new BulkLoader(jdbcTemplate, "INSERT INTO test_table (id, name) VALUES (?, ?)", LineParser.csv(2));
+        loader.setSkipHeader(true);
+        loader.setParserThreads(3);
+        loader.setConnections(2);
+
+        LoadResult result = loader.load(input);
+
+        assertEquals(lines, result.getLoadedRows());
+        assertEquals(0, result.getRejectedRows());
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        assertEquals(lines + 2, count);
+        assertEquals("Name, number 500 with some padding to grow the file", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 500));
+    }
+
+    @DisplayName("Should write unparsable and refused lines to the reject file")
+    @Test
+    public void load_ShouldWriteRejectedLines() throws IOException {
+        Path input = tempDir.resolve("input.csv");
+        Path rejects = tempDir.resolve("rejects.csv");
+        Files.writeString(input, "10,Ten\r\nbroken line\n1,Duplicate\n11,Eleven\n\n12,\"Unterminated\n");
+        BulkLoader loader = new BulkLoader(jdbcTemplate, "INSERT INTO test_table (id, name) VALUES (?, ?)", LineParser.csv(2));
+        loader.setRejectFile(rejects);
+
+        LoadResult result = loader.load(input);
+
+        assertEquals(2, result.getLoadedRows());
+        assertEquals(3, result.getRejectedRows());
+        List<String> rejectedLines = Files.readAllLines(rejects);
+        assertEquals(3, rejectedLines.size());
+        assertEquals(List.of("1,Duplicate", "12,\"Unterminated", "broken line"), rejectedLines.stream().sorted().toList());
+    }
+
+    @DisplayName("Should fail the load instead of rejecting rows when the connection is lost")
+    @Test
+    public void load_ShouldFail_WhenBatchFailsWithoutDataError() throws Exception {
+        Path input = tempDir.resolve("input.csv");
+        Files.writeString(input, "10,Ten\n11,Eleven\n");
+        DataSource failingDataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(failingDataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenThrow(new SQLException("Connection lost", "08006"));
+        BulkLoader loader = new BulkLoader(new JdbcTemplate(failingDataSource),
+                "INSERT INTO test_table (id, name) VALUES (?, ?)", LineParser.csv(2));
+        loader.setConnections(1);
+
+        assertThrows(TransientConnectionException.class, () -> loader.load(input));
+
+        verify(statement, never()).executeUpdate();
+        verify(connection).setAutoCommit(true);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        TestUtil.dropTestTable(dataSource);
+    }
+}
@@ -0,0 +1,213 @@
+package com.bondarenko.template.bulk;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.exception.DeadlockException;
+import com.bondarenko.template.JdbcTemplate;
+import com.bondarenko.template.limit.ConcurrencyLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BulkUpserterITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestUtil.createTestTable(dataSource);
+    }
+
+    @DisplayName("Should insert new keys and update existing ones with one merge")
+    @Test
+    public void bulkUpsert_ShouldInsertAndUpdateRows() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1, "Updated1"});
+        for (int i = 3; i < 2503; i++) {
+            rows.add(new Object[]{i, "Name" + i});
+        }
+
+        UpsertResult result = jdbcTemplate.bulkUpsert("test_table", List.of("id"), List.of("id", "name"), rows);
+
+        assertEquals(2500, result.getInsertedRows());
+        assertEquals(1, result.getUpdatedRows());
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        assertEquals(2502, count);
+        assertEquals("Updated1", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 1));
+        assertEquals("Entity2", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 2));
+        assertEquals("Name2000", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 2000));
+    }
+
+    @DisplayName("Should roll back the whole upsert when a row fails")
+    @Test
+    public void bulkUpsert_ShouldRollBack_WhenRowIsInvalid() {
+        List<Object[]> rows = List.of(new Object[]{1, "Updated1"}, new Object[]{3});
+
+        assertThrows(IllegalArgumentException.class,
+                () -> jdbcTemplate.bulkUpsert("test_table", List.of("id"), List.of("id", "name"), rows));
+
+        assertEquals("Entity1", jdbcTemplate.queryForObject(
+                "SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 1));
+        assertEquals(1, jdbcTemplate.update("INSERT INTO test_table (id, name) VALUES (?, ?)", 3, "Entity3"));
+    }
+
+    @DisplayName("Should reject identifiers that are not plain SQL names")
+    @Test
+    public void bulkUpsert_ShouldThrowException_WhenIdentifierIsInvalid() {
+        List<Object[]> rows = List.<Object[]>of(new Object[]{1, "Name"});
+
+        assertThrows(IllegalArgumentException.class, () -> jdbcTemplate.bulkUpsert(
+                "test_table; DROP TABLE test_table", List.of("id"), List.of("id", "name"), rows));
+        assertThrows(IllegalArgumentException.class, () -> jdbcTemplate.bulkUpsert(
+                "test_table", List.of("other"), List.of("id", "name"), rows));
+    }
+
+    @DisplayName("Should generate the merge statement of every dialect")
+    @Test
+    public void mergeSql_ShouldMatchDialect() {
+        List<String> keys = List.of("id");
+        List<String> columns = List.of("id", "name");
+
+        assertEquals("MERGE INTO t t USING s s ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET name = s.name "
+                        + "WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name)",
+                UpsertDialect.H2.mergeSql("t", "s", keys, columns));
+        assertEquals("INSERT INTO t (id, name) SELECT id, name FROM s ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name"
+                        + " RETURNING (xmax = 0)",
+                UpsertDialect.POSTGRESQL.mergeSql("t", "s", keys, columns));
+        assertEquals("INSERT INTO t (id, name) SELECT s.id, s.name FROM s s ON DUPLICATE KEY UPDATE name = s.name",
+                UpsertDialect.MYSQL.mergeSql("t", "s", keys, columns));
+        assertEquals("DROP TEMPORARY TABLE s", UpsertDialect.MYSQL.dropStagingSql("s"));
+        assertEquals("DROP TABLE s", UpsertDialect.POSTGRESQL.dropStagingSql("s"));
+        assertEquals(UpsertDialect.POSTGRESQL, UpsertDialect.of("PostgreSQL"));
+        assertEquals(UpsertDialect.MYSQL, UpsertDialect.of("MariaDB"));
+    }
+
+    @DisplayName("Should count inserted rows from the flags returned by the merge")
+    @Test
+    public void bulkUpsert_ShouldCountRowsFromMerge_WhenDialectReturnsInsertedFlags() throws SQLException {
+        Connection connection = mockConnection();
+        Statement statement = mock(Statement.class);
+        ResultSet flags = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(flags);
+        when(flags.next()).thenReturn(true, true, true, false);
+        when(flags.getBoolean(1)).thenReturn(true, false, true);
+        BulkUpserter upserter = new BulkUpserter(new JdbcTemplate(dataSourceOf(connection)));
+        upserter.setDialect(UpsertDialect.POSTGRESQL);
+
+        UpsertResult result = upserter.upsert("test_table", List.of("id"), List.of("id", "name"),
+                List.of(new Object[]{1, "One"}, new Object[]{2, "Two"}, new Object[]{3, "Three"}));
+
+        assertEquals(2, result.getInsertedRows());
+        assertEquals(1, result.getUpdatedRows());
+        verify(statement).execute(startsWith("DROP TABLE upsert_staging_"));
+    }
+
+    @DisplayName("Should keep the original failure when the clean-up fails too")
+    @Test
+    public void bulkUpsert_ShouldSuppressCleanUpFailures_WhenMergeFails() throws SQLException {
+        Connection connection = mockConnection();
+        Statement statement = mock(Statement.class);
+        SQLException mergeFailure = new SQLException("Deadlock detected", "40001");
+        SQLException dropFailure = new SQLException("Connection lost", "08006");
+        ResultSet existingRows = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(existingRows);
+        when(existingRows.next()).thenReturn(true);
+        when(statement.executeUpdate(anyString())).thenThrow(mergeFailure);
+        when(statement.execute(anyString())).thenReturn(false).thenThrow(dropFailure);
+        doThrow(new SQLException("Connection lost", "08006")).when(connection).rollback();
+        BulkUpserter upserter = new BulkUpserter(new JdbcTemplate(dataSourceOf(connection)));
+        upserter.setDialect(UpsertDialect.MYSQL);
+
+        DeadlockException exception = assertThrows(DeadlockException.class, () -> upserter.upsert("test_table",
+                List.of("id"), List.of("id", "name"), List.<Object[]>of(new Object[]{1, "One"})));
+
+        assertSame(mergeFailure, exception.getCause());
+        assertEquals(2, mergeFailure.getSuppressed().length);
+        assertSame(dropFailure, mergeFailure.getSuppressed()[1]);
+        verify(connection).setAutoCommit(true);
+        verify(statement).execute(startsWith("DROP TEMPORARY TABLE upsert_staging_"));
+    }
+
+    @DisplayName("Should hold a limiter permit for the whole upsert")
+    @Test
+    public void bulkUpsert_ShouldReleaseLimiterPermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+        jdbcTemplate.setConcurrencyLimiter(limiter);
+
+        jdbcTemplate.bulkUpsert("test_table", List.of("id"), List.of("id", "name"),
+                List.<Object[]>of(new Object[]{3, "Entity3"}));
+
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("UPSERT INTO test_table (id, name)");
+        assertEquals(0, partition.getInFlight());
+        assertEquals(0, partition.getRejected());
+    }
+
+    @DisplayName("Should apply the template's query timeout to every statement of the upsert")
+    @Test
+    public void bulkUpsert_ShouldApplyQueryTimeout() throws SQLException {
+        Connection connection = mockConnection();
+        PreparedStatement insert = mock(PreparedStatement.class);
+        Statement statement = mock(Statement.class);
+        ResultSet existingRows = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(insert);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(existingRows);
+        when(existingRows.next()).thenReturn(true);
+        BulkUpserter upserter = new BulkUpserter(new JdbcTemplate(dataSourceOf(connection))
+                .withTimeout(Duration.ofSeconds(30)));
+        upserter.setDialect(UpsertDialect.MYSQL);
+
+        upserter.upsert("test_table", List.of("id"), List.of("id", "name"),
+                List.<Object[]>of(new Object[]{1, "One"}));
+
+        verify(insert).setQueryTimeout(intThat(seconds -> seconds > 0 && seconds <= 30));
+        verify(statement, times(3)).setQueryTimeout(intThat(seconds -> seconds > 0 && seconds <= 30));
+    }
+
+    private static Connection mockConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        return connection;
+    }
+
+    private static DataSource dataSourceOf(Connection connection) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        TestUtil.dropTestTable(dataSource);
+    }
+}
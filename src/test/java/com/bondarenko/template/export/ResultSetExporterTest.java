@@ -0,0 +1,97 @@
+package com.bondarenko.template.export;
+
+import com.bondarenko.TestUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResultSetExporterTest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE export_table (id BIGINT, name VARCHAR(100000), price DECIMAL(10, 2), " +
+                    "rate DOUBLE, active BOOLEAN, created DATE, updated TIMESTAMP)");
+            statement.execute("INSERT INTO export_table VALUES " +
+                    "(-42, 'plain', 10.50, 1.5, TRUE, DATE '2023-01-02', TIMESTAMP '2023-01-02 03:04:05.12'), " +
+                    "(7, 'a,\"b\"\nc', NULL, NULL, NULL, NULL, NULL), " +
+                    "(8, 'Привіт 😀', 0.00, 3, FALSE, DATE '0999-12-31', TIMESTAMP '2023-12-31 23:59:59')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE export_table");
+        }
+    }
+
+    @DisplayName("Should export rows as CSV with header and quoted fields")
+    @Test
+    void shouldExportRowsAsCsv() throws Exception {
+        String csv = export(ExportFormat.CSV);
+
+        assertEquals("ID,NAME,PRICE,RATE,ACTIVE,CREATED,UPDATED\n" +
+                "-42,plain,10.50,1.5,true,2023-01-02,2023-01-02T03:04:05.12\n" +
+                "7,\"a,\"\"b\"\"\nc\",,,,,\n" +
+                "8,Привіт 😀,0.00,3,false,0999-12-31,2023-12-31T23:59:59\n", csv);
+    }
+
+    @DisplayName("Should export rows as JSON Lines with escaped strings and nulls")
+    @Test
+    void shouldExportRowsAsJsonLines() throws Exception {
+        String json = export(ExportFormat.JSON_LINES);
+
+        assertEquals("{\"ID\":-42,\"NAME\":\"plain\",\"PRICE\":10.50,\"RATE\":1.5,\"ACTIVE\":true," +
+                "\"CREATED\":\"2023-01-02\",\"UPDATED\":\"2023-01-02T03:04:05.12\"}\n" +
+                "{\"ID\":7,\"NAME\":\"a,\\\"b\\\"\\nc\",\"PRICE\":null,\"RATE\":null,\"ACTIVE\":null," +
+                "\"CREATED\":null,\"UPDATED\":null}\n" +
+                "{\"ID\":8,\"NAME\":\"Привіт 😀\",\"PRICE\":0.00,\"RATE\":3,\"ACTIVE\":false," +
+                "\"CREATED\":\"0999-12-31\",\"UPDATED\":\"2023-12-31T23:59:59\"}\n", json);
+    }
+
+    @DisplayName("Should flush rows larger than the buffer to the channel")
+    @Test
+    void shouldExportRowsLargerThanBuffer() throws Exception {
+        String longName = "x".repeat(100_000);
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO export_table (id, name) VALUES (?, ?)")) {
+            for (int i = 0; i < 5; i++) {
+                statement.setInt(1, 100 + i);
+                statement.setString(2, longName);
+                statement.executeUpdate();
+            }
+        }
+
+        String csv = export(ExportFormat.CSV);
+
+        assertEquals(10, csv.split("\n").length);
+        assertEquals(5 * longName.length(), csv.chars().filter(c -> c == 'x').count());
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM export_table ORDER BY id");
+             ResultSet resultSet = statement.executeQuery()) {
+            new ResultSetExporter(format, Channels.newChannel(output)).export(resultSet);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+}
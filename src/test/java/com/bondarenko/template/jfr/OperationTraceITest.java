@@ -0,0 +1,104 @@
+package com.bondarenko.template.jfr;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.template.JdbcTemplate;
+import com.bondarenko.template.NamedParameterJdbcTemplate;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OperationTraceITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        TestUtil.createTestTable(dataSource);
+    }
+
+    @Test
+    @DisplayName("Should emit query, update and connection events with phase durations")
+    public void templates_ShouldEmitFlightRecorderEvents() throws IOException {
+        List<RecordedEvent> events = record(() -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.query("SELECT id, name FROM test_table WHERE id > ?", TestUtil::getTestEntityByResultSet, 0);
+            new NamedParameterJdbcTemplate(dataSource).update("UPDATE test_table SET name = :name WHERE id = :id",
+                    Map.of("name", "Updated", "id", 1));
+        });
+
+        RecordedEvent query = find(events, "com.bondarenko.JdbcQuery");
+        assertEquals("SELECT id, name FROM test_table WHERE id > ?", query.getString("sql"));
+        assertEquals(1, query.getInt("parameterCount"));
+        assertEquals(2, query.getLong("rows"));
+        assertFalse(query.getBoolean("failed"));
+        assertTrue(query.getDuration("executeTime").toNanos() > 0);
+        assertTrue(query.getDuration("mapTime").toNanos() > 0);
+
+        RecordedEvent update = find(events, "com.bondarenko.JdbcUpdate");
+        assertEquals(2, update.getInt("parameterCount"));
+        assertEquals(1, update.getLong("rows"));
+
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("com.bondarenko.ConnectionAcquire")));
+    }
+
+    @Test
+    @DisplayName("Should record only the hash of the SQL when the text limit is 0")
+    public void setSqlTextLimit_ShouldOmitSqlText() throws IOException {
+        OperationTrace.setSqlTextLimit(0);
+        try {
+            List<RecordedEvent> events = record(() -> new JdbcTemplate(dataSource).update("DELETE FROM test_table WHERE id = ?", 2));
+
+            RecordedEvent update = find(events, "com.bondarenko.JdbcUpdate");
+            assertNull(update.getString("sql"));
+            assertEquals("DELETE FROM test_table WHERE id = ?".hashCode(), update.getInt("sqlHash"));
+        } finally {
+            OperationTrace.setSqlTextLimit(256);
+        }
+    }
+
+    private static List<RecordedEvent> record(Runnable operations) throws IOException {
+        Path file = Files.createTempFile("jdbc-template", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("com.bondarenko.JdbcQuery", "com.bondarenko.JdbcUpdate", "com.bondarenko.ConnectionAcquire")) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            operations.run();
+            recording.stop();
+            recording.dump(file);
+            return new ArrayList<>(RecordingFile.readAllEvents(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        TestUtil.dropTestTable(dataSource);
+    }
+}
@@ -0,0 +1,262 @@
+package com.bondarenko.template.limit;
+
+import com.bondarenko.exception.LimitExceededException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimiterTest {
+    private static final String FAST_SELECT = "SELECT name FROM test_table WHERE id = ?";
+    private static final String SLOW_SELECT = "SELECT name, COUNT(*) FROM test_table GROUP BY name";
+
+    @DisplayName("Test calls over the limit are rejected immediately")
+    @Test
+    void acquire_ShouldReject_WhenLimitReached() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(2, 1, 10);
+
+        ConcurrencyLimiter.Permit first = limiter.acquire("SELECT 1");
+        limiter.acquire("SELECT 1");
+
+        assertThrows(LimitExceededException.class, () -> limiter.acquire("SELECT 1"));
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("SELECT 1");
+        assertEquals(2, partition.getInFlight());
+        assertEquals(1, partition.getRejected());
+
+        first.onIgnore();
+        limiter.acquire("SELECT 1");
+        assertEquals(2, partition.getInFlight());
+    }
+
+    @DisplayName("Test distinct statements get separate partitions by default")
+    @Test
+    void acquire_ShouldUseSeparatePartitionPerStatement() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+
+        limiter.acquire("SELECT id FROM test_table WHERE id = ?");
+        limiter.acquire("SELECT COUNT(*) FROM test_table");
+
+        assertThrows(LimitExceededException.class, () -> limiter.acquire("SELECT id FROM test_table WHERE id = ?"));
+        assertEquals(2, limiter.getPartitions().size());
+    }
+
+    @DisplayName("Test statements beyond the partition bound share the overflow partition")
+    @Test
+    void acquire_ShouldUseOverflowPartition_WhenTooManyStatements() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("SELECT " + i).onIgnore();
+        }
+
+        assertEquals(65, limiter.getPartitions().size());
+        assertEquals(limiter.getPartition("OTHER"), limiter.partitionOf("SELECT 99"));
+    }
+
+    @DisplayName("Test concurrent first calls do not create more partitions than the bound")
+    @Test
+    void getPartition_ShouldKeepBound_WhenCalledConcurrently() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 100;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    limiter.getPartition("SELECT " + (offset + i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(65, limiter.getPartitions().size());
+    }
+
+    @DisplayName("Test calls over the total limit are rejected even when their partition has room")
+    @Test
+    void acquire_ShouldReject_WhenTotalLimitReached() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(2, 1, 10);
+        limiter.setTotalLimit(2);
+
+        ConcurrencyLimiter.Permit first = limiter.acquire("SELECT 1");
+        limiter.acquire("SELECT 2");
+
+        assertThrows(LimitExceededException.class, () -> limiter.acquire("SELECT 3"));
+        assertEquals(0, limiter.getPartition("SELECT 3").getInFlight());
+        assertEquals(1, limiter.getPartition("SELECT 3").getRejected());
+        assertEquals(2, limiter.getTotalInFlight());
+
+        first.onSuccess();
+        limiter.acquire("SELECT 3");
+        assertEquals(2, limiter.getTotalInFlight());
+    }
+
+    @DisplayName("Test a call rejected by its partition does not hold a slot of the total limit")
+    @Test
+    void acquire_ShouldReleaseTotalSlot_WhenPartitionRejects() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+        limiter.setTotalLimit(5);
+        limiter.acquire("SELECT 1");
+
+        assertThrows(LimitExceededException.class, () -> limiter.acquire("SELECT 1"));
+
+        assertEquals(1, limiter.getTotalInFlight());
+    }
+
+    @DisplayName("Test statement types get separate partitions with the statement type partitioner")
+    @Test
+    void acquire_ShouldUseSeparatePartitionPerStatementType() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(1, 1, 10);
+        limiter.setPartitioner(ConcurrencyLimiter::statementType);
+
+        limiter.acquire("  select * from test_table");
+
+        limiter.acquire("UPDATE test_table SET name = ?");
+        assertThrows(LimitExceededException.class, () -> limiter.acquire("SELECT 1"));
+        assertEquals(2, limiter.getPartitions().size());
+    }
+
+    @DisplayName("Test limit grows while latency stays at its minimum")
+    @Test
+    void update_ShouldIncreaseLimit_WhenNoQueueing() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(10, 1, 100);
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("SELECT");
+
+        for (int i = 0; i < 20; i++) {
+            partition.update(1_000_000, 10, false);
+        }
+
+        assertTrue(partition.getLimit() > 10, "limit was " + partition.getLimit());
+    }
+
+    @DisplayName("Test limit shrinks when latency shows queueing")
+    @Test
+    void update_ShouldDecreaseLimit_WhenLatencyGrows() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(50, 1, 100);
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("SELECT");
+        partition.update(1_000_000, 50, false);
+
+        for (int i = 0; i < 20; i++) {
+            partition.update(10_000_000, 50, false);
+        }
+
+        assertTrue(partition.getLimit() < 50, "limit was " + partition.getLimit());
+    }
+
+    @DisplayName("Test dropped calls cut the limit but not below the minimum")
+    @Test
+    void update_ShouldBackOff_WhenDropped() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(20, 5, 100);
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("SELECT");
+
+        partition.update(1_000_000, 20, true);
+        assertEquals(18, partition.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            partition.update(1_000_000, 20, true);
+        }
+        assertEquals(5, partition.getLimit());
+    }
+
+    @DisplayName("Test limit is kept when too few calls are in flight to judge it")
+    @Test
+    void update_ShouldKeepLimit_WhenUnderused() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(20, 1, 100);
+        ConcurrencyLimiter.Partition partition = limiter.getPartition("SELECT");
+
+        for (int i = 0; i < 10; i++) {
+            partition.update(1_000_000, 2, false);
+        }
+
+        assertEquals(20, partition.getLimit());
+    }
+
+    @DisplayName("Test released permits free their slot")
+    @Test
+    void onSuccess_ShouldReleaseSlot() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            permits.add(limiter.acquire("SELECT 1"));
+        }
+
+        permits.forEach(ConcurrencyLimiter.Permit::onSuccess);
+
+        assertEquals(0, limiter.getPartition("SELECT 1").getInFlight());
+    }
+
+    @DisplayName("Test limit of fast queries does not collapse when slow queries run alongside")
+    @Test
+    void update_ShouldKeepLimits_WhenFastAndSlowSelectsAreMixed() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(20, 1, 100);
+
+        int lowestLimit = runMixedSelects(limiter);
+
+        assertTrue(lowestLimit >= 20, "lowest limit was " + lowestLimit);
+    }
+
+    @DisplayName("Test limit collapses when fast and slow queries share a partition")
+    @Test
+    void update_ShouldShrinkSharedLimit_WhenFastAndSlowSelectsArePartitionedByType() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setLimits(20, 1, 100);
+        limiter.setPartitioner(ConcurrencyLimiter::statementType);
+
+        int lowestLimit = runMixedSelects(limiter);
+
+        assertTrue(lowestLimit <= 10, "lowest limit was " + lowestLimit);
+    }
+
+    /**
+     * Feeds one fast lookup per nine slow reports, each with as many calls in flight as the limit allows, and
+     * returns the lowest limit either statement had during the run.
+     */
+    private static int runMixedSelects(ConcurrencyLimiter limiter) {
+        int lowestLimit = Integer.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            ConcurrencyLimiter.Partition partition = limiter.partitionOf(i % 10 == 0 ? FAST_SELECT : SLOW_SELECT);
+            long latencyNanos = i % 10 == 0 ? 1_000_000 : 50_000_000;
+            partition.update(latencyNanos, partition.getLimit(), false);
+            lowestLimit = Math.min(lowestLimit, partition.getLimit());
+        }
+        return lowestLimit;
+    }
+
+    @DisplayName("Test invalid limits are rejected")
+    @Test
+    void setLimits_ShouldThrowException_WhenInvalid() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+
+        assertThrows(IllegalArgumentException.class, () -> limiter.setLimits(5, 10, 20));
+        assertThrows(IllegalArgumentException.class, () -> limiter.setLimits(5, 0, 20));
+        assertThrows(IllegalArgumentException.class, () -> limiter.setTotalLimit(0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.bondarenko.template.poll;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.mapper.ResultSetExtractor;
+import com.bondarenko.template.JdbcTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ChangePollerITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final InMemoryCheckpointStore checkpointStore = new InMemoryCheckpointStore();
+    private ChangePoller<Integer> changePoller;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.update("CREATE TABLE change_table (id INT PRIMARY KEY, version BIGINT, name VARCHAR(255))");
+        changePoller = new ChangePoller<>(jdbcTemplate, "change_table", "version", "id",
+                resultSet -> resultSet.getInt("id"), delivered::addAll, checkpointStore);
+    }
+
+    @Test
+    @DisplayName("Should deliver rows sharing a watermark across batches without gaps or duplicates")
+    public void pollOnce_ShouldHandleWatermarkTies() {
+        for (int id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO change_table VALUES (?, ?, ?)", id, 7L, "Row" + id);
+        }
+        changePoller.setBatchSize(2);
+
+        assertEquals(2, changePoller.pollOnce());
+        assertEquals(2, changePoller.pollOnce());
+        assertEquals(1, changePoller.pollOnce());
+        assertEquals(0, changePoller.pollOnce());
+
+        assertEquals(List.of(1, 2, 3, 4, 5), delivered);
+        assertEquals(new Checkpoint(7L, 5), checkpointStore.load());
+    }
+
+    @Test
+    @DisplayName("Should deliver only new or changed rows after the checkpoint")
+    public void pollOnce_ShouldDeliverOnlyChanges() {
+        jdbcTemplate.update("INSERT INTO change_table VALUES (1, 1, 'A'), (2, 2, 'B')");
+        changePoller.pollOnce();
+
+        jdbcTemplate.update("UPDATE change_table SET version = 3, name = 'A2' WHERE id = 1");
+        jdbcTemplate.update("INSERT INTO change_table VALUES (3, 4, 'C')");
+        changePoller.pollOnce();
+
+        assertEquals(List.of(1, 2, 1, 3), delivered);
+    }
+
+    @Test
+    @DisplayName("Should not advance the checkpoint when the consumer fails")
+    public void pollOnce_ShouldRetryBatchWhenConsumerFails() {
+        jdbcTemplate.update("INSERT INTO change_table VALUES (1, 1, 'A')");
+        ChangePoller<Integer> failingPoller = new ChangePoller<>(jdbcTemplate, "change_table", "version", "id",
+                resultSet -> resultSet.getInt("id"), rows -> {
+            throw new IllegalStateException("Consumer failed");
+        }, checkpointStore);
+
+        assertThrows(IllegalStateException.class, failingPoller::pollOnce);
+        assertNull(checkpointStore.load());
+        assertEquals(1, changePoller.pollOnce());
+    }
+
+    @Test
+    @DisplayName("Should bind the checkpoint to an index-friendly range predicate")
+    public void pollOnce_ShouldSeekFromCheckpoint() throws SQLException {
+        JdbcTemplate template = mock(JdbcTemplate.class);
+        ResultSet emptyResult = mock(ResultSet.class);
+        when(template.withMaxRows(anyInt())).thenReturn(template);
+        when(template.extract(anyString(), any(), any(), any(), any())).thenAnswer(invocation ->
+                invocation.<ResultSetExtractor<?>>getArgument(1).extract(emptyResult));
+        checkpointStore.save(new Checkpoint(7L, 3));
+        ChangePoller<Integer> poller = new ChangePoller<>(template, "change_table", "version", "id",
+                resultSet -> resultSet.getInt("id"), delivered::addAll, checkpointStore);
+
+        assertEquals(0, poller.pollOnce());
+
+        verify(template).extract(eq("SELECT * FROM change_table WHERE version >= ? AND (version > ? OR id > ?)"
+                + " ORDER BY version, id"), any(), eq(7L), eq(7L), eq(3));
+    }
+
+    @Test
+    @DisplayName("Should reject identifiers that are not plain SQL names")
+    public void constructor_ShouldRejectInvalidIdentifiers() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangePoller<>(jdbcTemplate, "change_table; DROP TABLE x",
+                "version", "id", resultSet -> 1, rows -> {
+        }, checkpointStore));
+    }
+
+    @Test
+    @DisplayName("Should poll in the background and back off while idle")
+    public void start_ShouldPollInBackground() throws InterruptedException {
+        changePoller.setPollInterval(Duration.ofMillis(5), Duration.ofMillis(40));
+        changePoller.start();
+        try {
+            jdbcTemplate.update("INSERT INTO change_table VALUES (1, 1, 'A')");
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (delivered.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(300);
+        } finally {
+            changePoller.stop();
+        }
+
+        assertEquals(List.of(1), delivered);
+        assertEquals(Duration.ofMillis(40), changePoller.getCurrentPollInterval());
+        assertFalse(changePoller.isRunning());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        changePoller.stop();
+        jdbcTemplate.update("DROP TABLE change_table");
+    }
+}
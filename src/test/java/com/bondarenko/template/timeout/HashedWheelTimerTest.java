@@ -0,0 +1,79 @@
+package com.bondarenko.template.timeout;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTest {
+    private final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(5), 8, "test-timer");
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @DisplayName("Should run a task once its delay has passed")
+    @Test
+    void shouldRunTaskAfterDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @DisplayName("Should run tasks whose delay spans several wheel rotations")
+    @Test
+    void shouldRunTaskAfterSeveralRotations() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timer.schedule(latch::countDown, 120, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(120));
+    }
+
+    @DisplayName("Should not run cancelled tasks")
+    @Test
+    void shouldNotRunCancelledTask() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        timer.schedule(later::countDown, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(timeout.isExpired());
+    }
+
+    @DisplayName("Should end the timer thread and discard pending tasks when stopped")
+    @Test
+    void stop_ShouldEndTimerThread() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        timer.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+
+        timer.stop();
+        Thread.sleep(50);
+
+        assertEquals(0, runs.get());
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().equals("test-timer")));
+        assertThrows(IllegalStateException.class, () -> timer.schedule(runs::incrementAndGet, 1, TimeUnit.MILLISECONDS));
+    }
+}
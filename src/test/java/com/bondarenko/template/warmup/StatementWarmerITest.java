@@ -0,0 +1,101 @@
+package com.bondarenko.template.warmup;
+
+import com.bondarenko.TestUtil;
+import com.bondarenko.template.JdbcTemplate;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatementWarmerITest {
+    private final DataSource dataSource = TestUtil.getJdbcDataSource();
+    private JdbcConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        TestUtil.createTestTable(dataSource);
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1", "sa", "sa");
+        pool.setMaxConnections(3);
+    }
+
+    @Test
+    @DisplayName("Should prepare every statement on every connection and run synthetic executions")
+    public void warmup_ShouldPrepareAndExecuteOnEveryConnection() {
+        AtomicInteger mappedRows = new AtomicInteger();
+        StatementRegistry registry = new StatementRegistry()
+                .register("SELECT id, name FROM test_table WHERE id > :id", Map.of("id", 0), resultSet -> mappedRows.incrementAndGet())
+                .register("SELECT name FROM test_table WHERE id = ?", resultSet -> resultSet.getString(1), 1)
+                .register("DELETE FROM test_table");
+        StatementWarmer warmer = new StatementWarmer(pool);
+        warmer.setConnections(3);
+        warmer.setSyntheticExecutions(5);
+
+        WarmupReport report = warmer.warmup(registry);
+
+        assertTrue(report.isSuccessful(), report.getFailures().toString());
+        assertEquals(3, report.getWarmedConnections());
+        assertEquals(9, report.getPreparedStatements());
+        assertEquals(30, report.getSyntheticExecutions());
+        assertEquals(3 * 5 * 2, mappedRows.get());
+        assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Should roll back synthetic updates")
+    public void warmup_ShouldRollBackSyntheticUpdates() {
+        StatementRegistry registry = new StatementRegistry()
+                .register("DELETE FROM test_table WHERE id > :id", Map.of("id", 0))
+                .registerUpdate("INSERT INTO test_table (id, name) VALUES (?, ?)", 3, "Entity3");
+
+        WarmupReport report = new JdbcTemplate(pool).warmup(registry, 2, 1, Duration.ofSeconds(10));
+
+        assertTrue(report.isSuccessful(), report.getFailures().toString());
+        Integer count = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM test_table", resultSet -> resultSet.getInt(1));
+        assertEquals(2, count);
+    }
+
+    @Test
+    @DisplayName("Should report invalid statements without aborting the warmup")
+    public void warmup_ShouldReportInvalidStatements() {
+        StatementRegistry registry = new StatementRegistry()
+                .register("SELECT id FROM missing_table")
+                .register("SELECT id FROM test_table WHERE id = :id AND name = :name", Map.of("id", 1))
+                .register("SELECT id FROM test_table");
+
+        WarmupReport report = new JdbcTemplate(pool).warmup(registry, 1, 1, Duration.ofSeconds(10));
+
+        assertFalse(report.isSuccessful());
+        assertEquals(2, report.getFailures().size());
+        assertTrue(report.getFailures().containsKey("SELECT id FROM missing_table"));
+        assertEquals(2, report.getPreparedStatements());
+    }
+
+    @Test
+    @DisplayName("Should stop at the time limit")
+    public void warmup_ShouldStopAtTimeLimit() {
+        StatementRegistry registry = new StatementRegistry()
+                .register("SELECT SUM(X) FROM SYSTEM_RANGE(1, 10000000000)", resultSet -> resultSet.getLong(1));
+
+        WarmupReport report = new JdbcTemplate(pool).warmup(registry, 1, 100, Duration.ofMillis(300));
+
+        assertTrue(report.isTimedOut());
+        assertTrue(report.getElapsed().toMillis() < 5_000);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        pool.dispose();
+        TestUtil.dropTestTable(dataSource);
+    }
+}